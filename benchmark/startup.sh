@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Measures the time from process start to the first successful POST /orders for each startup mode.
+#
+#   ./mvnw -Pfast-startup package -Dcds.skip=false   # WAR, extracted class path, AOT classes and CDS archive
+#   ./mvnw -Pnative native:compile                   # optional, target/demo native executable
+#   benchmark/startup.sh [runs]
+#
+# Modes whose artifacts are missing are skipped. Every run uses the database configured in
+# application.properties, so start from the same data for comparable numbers.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+TARGET=target
+WAR=$(ls "$TARGET"/demo-*.war 2>/dev/null | head -n 1 || true)
+CLASSPATH_FILE=$TARGET/fast-startup/classpath.txt
+CDS_ARCHIVE=$TARGET/fast-startup/demo.jsa
+NATIVE=$TARGET/demo
+BODY='{"customerName":"bench","customerEmail":"bench@example.com","items":[]}'
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+# Starts the given command and prints the milliseconds until POST /orders first answers 200
+time_to_first_order() {
+    local start pid elapsed
+    start=$(now_ms)
+    "$@" --server.port="$PORT" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null -X POST -H 'Content-Type: application/json' -d "$BODY" \
+            "http://localhost:$PORT/orders"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "failed" && return
+        fi
+        sleep 0.02
+    done
+    elapsed=$(($(now_ms) - start))
+    kill "$pid" && wait "$pid" 2>/dev/null || true
+    echo "$elapsed"
+}
+
+bench() {
+    local mode=$1
+    shift
+    local results=()
+    for ((i = 0; i < RUNS; i++)); do
+        results+=("$(time_to_first_order "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${results[@]}" | sort -n)
+    printf '%-10s min=%6s ms  median=%6s ms  runs: %s\n' "$mode" "$(echo "$sorted" | head -n 1)" \
+        "$(echo "$sorted" | sed -n "$(((RUNS + 1) / 2))p")" "${results[*]}"
+}
+
+if [[ -n "$WAR" ]]; then
+    bench war java -jar "$WAR"
+fi
+if [[ -f "$CLASSPATH_FILE" ]]; then
+    CP=$(cat "$CLASSPATH_FILE")
+    bench extracted java -cp "$CP" com.example.demo.DemoApplication
+    bench aot java -Dspring.aot.enabled=true -cp "$CP" com.example.demo.DemoApplication
+    if [[ -f "$CDS_ARCHIVE" ]]; then
+        bench aot+cds java -XX:SharedArchiveFile="$CDS_ARCHIVE" -Dspring.aot.enabled=true \
+            -cp "$CP" com.example.demo.DemoApplication
+    fi
+fi
+if [[ -x "$NATIVE" ]]; then
+    bench native "$NATIVE"
+fi
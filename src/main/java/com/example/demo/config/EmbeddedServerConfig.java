@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EmbeddedServerProperties.class)
+public class EmbeddedServerConfig {
+
+    /**
+     * Switches the embedded connector to the configured protocol. Threads, accept queue, keep-alive and
+     * compression come from {@code server.tomcat.*} and {@code server.compression.*}.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> connectorProtocolCustomizer(
+            EmbeddedServerProperties properties) {
+        return factory -> factory.setProtocol(properties.getProtocol().getClassName());
+    }
+}
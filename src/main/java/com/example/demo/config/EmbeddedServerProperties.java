@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Embedded Tomcat settings that Spring Boot's {@code server.tomcat.*} does not cover, bound from
+ * {@code demo.server.*}. Like {@code server.tomcat.*}, they only apply to the executable jar, not to a
+ * WAR deployed to an external container.
+ */
+@ConfigurationProperties(prefix = "demo.server")
+public class EmbeddedServerProperties {
+
+    public enum Protocol {
+        NIO("org.apache.coyote.http11.Http11NioProtocol"),
+        NIO2("org.apache.coyote.http11.Http11Nio2Protocol");
+
+        private final String className;
+
+        Protocol(String className) {
+            this.className = className;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+    }
+
+    /**
+     * The HTTP/1.1 connector implementation.
+     */
+    private Protocol protocol = Protocol.NIO2;
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(Protocol protocol) {
+        this.protocol = protocol;
+    }
+}
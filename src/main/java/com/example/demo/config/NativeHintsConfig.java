@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.StatusDailyCount;
+import com.example.demo.entity.OrderSnapshot;
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Reflection and proxy hints for a native image, for what the AOT engine cannot find on its own: the
+ * JSONB snapshot contents bound by Jackson inside Hibernate, the DTO built by a JPQL constructor
+ * expression, and the JDK proxies datasource-proxy creates around JDBC objects.
+ */
+@Configuration
+@RegisterReflectionForBinding({OrderSnapshot.Contents.class, OrderSnapshot.Line.class, StatusDailyCount.class})
+@ImportRuntimeHints(NativeHintsConfig.JdbcProxyHints.class)
+public class NativeHintsConfig {
+
+    static class JdbcProxyHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : new Class<?>[]{Connection.class, Statement.class, PreparedStatement.class,
+                    CallableStatement.class, ResultSet.class}) {
+                hints.proxies().registerJdkProxy(ProxyJdbcObject.class, type);
+            }
+        }
+    }
+}
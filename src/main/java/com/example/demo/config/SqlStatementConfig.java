@@ -0,0 +1,40 @@
+package com.example.demo.config;
+
+import com.example.demo.metrics.SqlBudgetProperties;
+import com.example.demo.metrics.SqlStatementListener;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SqlBudgetProperties.class)
+public class SqlStatementConfig {
+
+    /**
+     * Wraps the application data source so every statement and result set row passes through the
+     * {@link SqlStatementListener}.
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatementDataSourcePostProcessor(ObjectProvider<SqlStatementListener> listener) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                SqlStatementListener statementListener = listener.getObject();
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(statementListener)
+                        .methodListener(statementListener)
+                        .proxyResultSet()
+                        .build();
+            }
+        };
+    }
+}
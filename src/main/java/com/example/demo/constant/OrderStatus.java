@@ -1,9 +1,29 @@
 package com.example.demo.constant;
 
+/**
+ * Order lifecycle. CREATED and PENDING orders have not been placed and hold no stock. Placing an order
+ * reserves its stock and moves it to PROCESSING, where it can still be cancelled. Fulfilment moves it
+ * to COMPLETED.
+ */
 public enum OrderStatus {
     CREATED,
     PENDING,
     PROCESSING,
     COMPLETED,
-    CANCELLED
-}
\ No newline at end of file
+    CANCELLED;
+
+    /**
+     * Whether an order in this status may move to {@code next}. COMPLETED and CANCELLED are final.
+     *
+     * @param next the requested status
+     * @return true if the transition is allowed
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return switch (this) {
+            case CREATED -> next == PENDING || next == PROCESSING || next == CANCELLED;
+            case PENDING -> next == PROCESSING || next == COMPLETED || next == CANCELLED;
+            case PROCESSING -> next == COMPLETED || next == CANCELLED;
+            case COMPLETED, CANCELLED -> false;
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.constant;
+
+public enum ReservationMode {
+    /**
+     * Products are loaded and decremented one order line at a time, in line order.
+     */
+    PER_ITEM,
+    /**
+     * All products of the order are locked up front in ascending id order before any stock is decremented.
+     */
+    PESSIMISTIC
+}
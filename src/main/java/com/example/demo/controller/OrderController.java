@@ -1,13 +1,23 @@
 package com.example.demo.controller;
 
 import com.example.demo.constant.OrderStatus;
+import com.example.demo.constant.ReservationMode;
+import com.example.demo.dto.OrderResponse;
 import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderSnapshot;
+import com.example.demo.exception.IllegalStatusTransitionException;
+import com.example.demo.metrics.SqlStatementScope;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
@@ -15,10 +25,21 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderSnapshotService orderSnapshotService;
+
+    @Value("${demo.orders.reservation-mode:PER_ITEM}")
+    private ReservationMode reservationMode;
+
     @PostMapping
     public ResponseEntity<?> placeOrder(@RequestBody Order order) {
+        SqlStatementScope.declareWorkItems(order.getItems().size());
         try {
-            orderService.placeOrder(order);
+            if (reservationMode == ReservationMode.PESSIMISTIC) {
+                orderService.placeOrderWithLocking(order);
+            } else {
+                orderService.placeOrder(order);
+            }
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
@@ -26,9 +47,13 @@ public class OrderController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrder(@PathVariable Long id) {
-        Order order = orderService.getOrder(id);
-        return ResponseEntity.ok(order);
+    public ResponseEntity<OrderResponse> getOrder(@PathVariable Long id) {
+        // Served from the snapshot with a single primary key lookup when the read model is enabled
+        Optional<OrderSnapshot> snapshot = orderSnapshotService.findSnapshot(id);
+        if (snapshot.isPresent()) {
+            return ResponseEntity.ok(OrderResponse.from(snapshot.get()));
+        }
+        return ResponseEntity.ok(OrderResponse.from(orderService.getOrderWithItems(id)));
     }
 
     @PutMapping("/{id}/status")
@@ -36,4 +61,29 @@ public class OrderController {
         orderService.updateOrderStatus(id, status);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelOrder(@PathVariable Long id) {
+        try {
+            orderService.cancelOrder(id);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<List<Long>> cancelOrders(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(orderService.cancelOrders(ids));
+    }
+
+    @PutMapping("/status")
+    public ResponseEntity<?> transitionOrderStatus(@RequestBody List<Long> ids, @RequestParam OrderStatus from,
+                                                   @RequestParam OrderStatus to) {
+        try {
+            return ResponseEntity.ok(orderService.transitionOrderStatus(ids, from, to));
+        } catch (IllegalStatusTransitionException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package com.example.demo.dto;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderItem;
+import com.example.demo.entity.OrderSnapshot;
+import com.example.demo.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The order returned by {@code GET /orders/{id}}, the same whether it is read from the snapshot or from
+ * the order tables.
+ */
+public record OrderResponse(Long id, OrderStatus status, String customerName, String customerEmail,
+                            BigDecimal total, List<Line> lines) {
+
+    public record Line(Long productId, String productName, BigDecimal unitPrice, int quantity) {
+    }
+
+    public static OrderResponse from(OrderSnapshot snapshot) {
+        OrderSnapshot.Contents contents = snapshot.getContents();
+        List<Line> lines = contents.getLines().stream()
+                .map(line -> new Line(line.getProductId(), line.getProductName(), line.getUnitPrice(), line.getQuantity()))
+                .toList();
+        return new OrderResponse(snapshot.getOrderId(), snapshot.getStatus(), contents.getCustomerName(),
+                contents.getCustomerEmail(), contents.getTotal(), lines);
+    }
+
+    public static OrderResponse from(Order order) {
+        List<Line> lines = order.getItems().stream()
+                .map(OrderResponse::line)
+                .toList();
+        return new OrderResponse(order.getId(), order.getStatus(), order.getCustomerName(), order.getCustomerEmail(),
+                order.getTotal(), lines);
+    }
+
+    private static Line line(OrderItem item) {
+        Product product = item.getProduct();
+        return new Line(product == null ? null : product.getId(), product == null ? null : product.getName(),
+                item.getUnitPrice(), item.getQuantity());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+
+/**
+ * An order moved to a new status, with its creation time so follow-up queries on its items can be
+ * bounded to the partitions that hold them.
+ */
+public interface OrderTransition {
+
+    Long getId();
+
+    Instant getCreatedAt();
+
+    boolean getStockReserved();
+}
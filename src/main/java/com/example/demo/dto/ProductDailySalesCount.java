@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.ProductDailySales;
+import com.example.demo.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record ProductDailySalesCount(Long productId, LocalDate salesDate, long unitsSold, long unitsCancelled,
+                                     BigDecimal revenue) {
+
+    public static ProductDailySalesCount from(ProductDailySales sales) {
+        return new ProductDailySalesCount(sales.getProductId(), sales.getSalesDate(), sales.getUnitsSold(),
+                sales.getUnitsCancelled(), Money.fromMinor(sales.getRevenueMinor()));
+    }
+}
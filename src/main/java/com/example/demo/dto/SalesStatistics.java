@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record SalesStatistics(LocalDate from, LocalDate to, List<ProductDailySalesCount> productSales,
+                              List<StatusDailyCount> statusCounts) {
+}
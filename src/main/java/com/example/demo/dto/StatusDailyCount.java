@@ -0,0 +1,8 @@
+package com.example.demo.dto;
+
+import com.example.demo.constant.OrderStatus;
+
+import java.time.LocalDate;
+
+public record StatusDailyCount(OrderStatus status, LocalDate statDate, Long orderCount) {
+}
@@ -1,8 +1,15 @@
 package com.example.demo.entity;
 
 import com.example.demo.constant.OrderStatus;
+import com.example.demo.util.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,13 +23,55 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> items = new ArrayList<>();
 
+    /**
+     * Never null, so the single order and the bulk status updates see the same status.
+     */
     @Enumerated(EnumType.STRING)
-    private OrderStatus status;
+    @ColumnDefault("'CREATED'")
+    @Column(nullable = false)
+    private OrderStatus status = OrderStatus.CREATED;
 
     private String customerName;
 
     private String customerEmail;
 
+    /**
+     * Sum of the line totals in minor units, computed when the order is placed.
+     */
+    @ColumnDefault("0")
+    private long totalMinor;
+
+    /**
+     * Set when placing the order took its items off the stock, so cancelling it returns exactly what
+     * was reserved. Orders moved between statuses without being placed never hold stock.
+     */
+    @ColumnDefault("false")
+    private boolean stockReserved;
+
+    /**
+     * The partition key of the order and its items. Read-only in JSON: a client supplied time outside
+     * the created partitions would put the order in the default partition.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("now()")
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    void prePersist() {
+        // PostgreSQL keeps microseconds, truncating keeps the in-memory value equal to the stored one
+        createdAt = (createdAt == null ? Instant.now() : createdAt).truncatedTo(ChronoUnit.MICROS);
+        if (status == null) {
+            status = OrderStatus.CREATED;
+        }
+        // Link the items before they are cascaded, so they are inserted with their order and partition key
+        for (OrderItem item : items) {
+            if (item.getOrder() == null) {
+                item.setOrder(this);
+            }
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -62,4 +111,34 @@ public class Order {
     public void setCustomerEmail(String customerEmail) {
         this.customerEmail = customerEmail;
     }
+
+    @JsonIgnore
+    public long getTotalMinor() {
+        return totalMinor;
+    }
+
+    public void setTotalMinor(long totalMinor) {
+        this.totalMinor = totalMinor;
+    }
+
+    public BigDecimal getTotal() {
+        return Money.fromMinor(totalMinor);
+    }
+
+    @JsonIgnore
+    public boolean isStockReserved() {
+        return stockReserved;
+    }
+
+    public void setStockReserved(boolean stockReserved) {
+        this.stockReserved = stockReserved;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
 }
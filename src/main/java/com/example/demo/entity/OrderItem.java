@@ -1,6 +1,13 @@
 package com.example.demo.entity;
 
+import com.example.demo.util.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 public class OrderItem {
@@ -8,14 +15,44 @@ public class OrderItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * The foreign key to the partitioned order table spans (order_id, order_created_at) and is declared
+     * in the schema, not derived from this mapping.
+     */
     @ManyToOne
+    @JoinColumn(foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Order order;
 
+    /**
+     * Copy of the order's creation time, the partition key of the items.
+     */
+    @ColumnDefault("now()")
+    @Column(nullable = false, updatable = false)
+    private Instant orderCreatedAt;
+
     @ManyToOne
     private Product product;
 
     private int quantity;
 
+    /**
+     * The product price at purchase time, in minor units.
+     */
+    @ColumnDefault("0")
+    private long unitPriceMinor;
+
+    @ColumnDefault("0")
+    private long lineTotalMinor;
+
+    @PrePersist
+    void prePersist() {
+        if (order != null && order.getCreatedAt() != null) {
+            orderCreatedAt = order.getCreatedAt();
+        } else if (orderCreatedAt == null) {
+            orderCreatedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -47,4 +84,39 @@ public class OrderItem {
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
+
+    @JsonIgnore
+    public long getUnitPriceMinor() {
+        return unitPriceMinor;
+    }
+
+    public void setUnitPriceMinor(long unitPriceMinor) {
+        this.unitPriceMinor = unitPriceMinor;
+    }
+
+    @JsonIgnore
+    public long getLineTotalMinor() {
+        return lineTotalMinor;
+    }
+
+    public void setLineTotalMinor(long lineTotalMinor) {
+        this.lineTotalMinor = lineTotalMinor;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return Money.fromMinor(unitPriceMinor);
+    }
+
+    public BigDecimal getLineTotal() {
+        return Money.fromMinor(lineTotalMinor);
+    }
+
+    @JsonIgnore
+    public Instant getOrderCreatedAt() {
+        return orderCreatedAt;
+    }
+
+    public void setOrderCreatedAt(Instant orderCreatedAt) {
+        this.orderCreatedAt = orderCreatedAt;
+    }
 }
@@ -0,0 +1,163 @@
+package com.example.demo.entity;
+
+import com.example.demo.constant.OrderStatus;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Denormalized read model of a placed order. The lines, product names and prices are captured when the
+ * order is placed and stored as one JSONB document, so reading an order is a single primary key lookup
+ * and later product changes do not rewrite order history. Only the status is kept up to date.
+ * The id is the order's, so the snapshot tells Spring Data itself whether it is new: saving a new one is
+ * a plain INSERT instead of a merge that first selects it.
+ */
+@Entity
+public class OrderSnapshot implements Persistable<Long> {
+    @Id
+    private Long orderId;
+
+    @Transient
+    private boolean isNew = true;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Contents contents;
+
+    public static class Contents {
+        private String customerName;
+
+        private String customerEmail;
+
+        private BigDecimal total;
+
+        private List<Line> lines = new ArrayList<>();
+
+        public String getCustomerName() {
+            return customerName;
+        }
+
+        public void setCustomerName(String customerName) {
+            this.customerName = customerName;
+        }
+
+        public String getCustomerEmail() {
+            return customerEmail;
+        }
+
+        public void setCustomerEmail(String customerEmail) {
+            this.customerEmail = customerEmail;
+        }
+
+        public BigDecimal getTotal() {
+            return total;
+        }
+
+        public void setTotal(BigDecimal total) {
+            this.total = total;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public void setLines(List<Line> lines) {
+            this.lines = lines;
+        }
+    }
+
+    public static class Line {
+        private Long productId;
+
+        private String productName;
+
+        private BigDecimal unitPrice;
+
+        private int quantity;
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public void setProductName(String productName) {
+            this.productName = productName;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public void setUnitPrice(BigDecimal unitPrice) {
+            this.unitPrice = unitPrice;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
+    @Override
+    public Long getId() {
+        return orderId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public Contents getContents() {
+        return contents;
+    }
+
+    public void setContents(Contents contents) {
+        this.contents = contents;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.entity;
+
+import com.example.demo.constant.OrderStatus;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Rollup of how many orders entered each status per day. Every order placement touches the same status
+ * and day, so the count is spread over a few shard rows picked at random; otherwise all placing
+ * transactions would queue on one row lock. Readers sum the shards.
+ */
+@Entity
+@IdClass(OrderStatusDaily.Key.class)
+public class OrderStatusDaily {
+    @Id
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Id
+    private LocalDate statDate;
+
+    @Id
+    private int shard;
+
+    private long orderCount;
+
+    public static class Key implements Serializable {
+        private OrderStatus status;
+
+        private LocalDate statDate;
+
+        private int shard;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return status == key.status && Objects.equals(statDate, key.statDate) && shard == key.shard;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(status, statDate, shard);
+        }
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public void setStatDate(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+}
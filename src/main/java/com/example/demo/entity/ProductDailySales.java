@@ -0,0 +1,94 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Rollup of units sold and cancelled per product and day. Updated incrementally in the same transaction
+ * as the order placement or cancellation, so it never has to be recomputed from the order items.
+ */
+@Entity
+@IdClass(ProductDailySales.Key.class)
+public class ProductDailySales {
+    @Id
+    private Long productId;
+
+    @Id
+    private LocalDate salesDate;
+
+    private long unitsSold;
+
+    private long unitsCancelled;
+
+    /**
+     * Revenue of the day in minor units, net of cancellations made that day.
+     */
+    private long revenueMinor;
+
+    public static class Key implements Serializable {
+        private Long productId;
+
+        private LocalDate salesDate;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(productId, key.productId) && Objects.equals(salesDate, key.salesDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, salesDate);
+        }
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    public void setSalesDate(LocalDate salesDate) {
+        this.salesDate = salesDate;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public long getUnitsCancelled() {
+        return unitsCancelled;
+    }
+
+    public void setUnitsCancelled(long unitsCancelled) {
+        this.unitsCancelled = unitsCancelled;
+    }
+
+    public long getRevenueMinor() {
+        return revenueMinor;
+    }
+
+    public void setRevenueMinor(long revenueMinor) {
+        this.revenueMinor = revenueMinor;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.event;
+
+/**
+ * Published inside the transaction that placed the order.
+ */
+public record OrderPlacedEvent(Long orderId) {
+}
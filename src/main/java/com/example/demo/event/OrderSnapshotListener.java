@@ -0,0 +1,24 @@
+package com.example.demo.event;
+
+import com.example.demo.service.OrderSnapshotService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class OrderSnapshotListener {
+
+    @Autowired
+    private OrderSnapshotService orderSnapshotService;
+
+    /**
+     * Writes the snapshot once the order is committed. Orders that roll back never get one.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        if (orderSnapshotService.isEnabled()) {
+            orderSnapshotService.writeSnapshot(event.orderId());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.exception;
+
+import com.example.demo.constant.OrderStatus;
+
+public class IllegalStatusTransitionException extends RuntimeException {
+    public IllegalStatusTransitionException(OrderStatus from, OrderStatus to) {
+        super("Illegal order status transition from " + from + " to " + to);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.job;
+
+import com.example.demo.service.OrderPartitionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Creates the upcoming monthly order partitions on startup and on {@code demo.partitions.cron}, and
+ * archives months older than {@code demo.partitions.retention-months}. Only runs once the order tables
+ * are partitioned and {@code demo.partitions.enabled} is set.
+ */
+@Component
+public class OrderPartitionJob {
+
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+
+    @Value("${demo.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${demo.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${demo.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (enabled) {
+            orderPartitionService.createPartitions(YearMonth.now(ZoneOffset.UTC), monthsAhead);
+        }
+    }
+
+    @Scheduled(cron = "${demo.partitions.cron:-}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        orderPartitionService.createPartitions(current, monthsAhead);
+        if (retentionMonths > 0) {
+            orderPartitionService.archivePartitions(current.minusMonths(retentionMonths));
+        }
+    }
+}
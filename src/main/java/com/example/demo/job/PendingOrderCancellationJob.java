@@ -0,0 +1,51 @@
+package com.example.demo.job;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.service.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Cancels PENDING orders older than {@code demo.cancellation.max-age} in batches, returning any stock they
+ * reserved.
+ * Each batch runs in its own transaction. Disabled unless {@code demo.cancellation.cron} is set.
+ */
+@Component
+public class PendingOrderCancellationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingOrderCancellationJob.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${demo.cancellation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${demo.cancellation.max-age:P1D}")
+    private Duration maxAge;
+
+    @Scheduled(cron = "${demo.cancellation.cron:-}")
+    public void cancelPendingOrders() {
+        Instant before = Instant.now().minus(maxAge);
+        int cancelled = 0;
+        List<Long> ids;
+        while (!(ids = orderRepository.findIdsByStatusCreatedBefore(OrderStatus.PENDING, before,
+                PageRequest.of(0, batchSize))).isEmpty()) {
+            cancelled += orderService.cancelOrders(ids).size();
+        }
+        logger.info("Cancelled {} pending orders created before {}", cancelled, before);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.metrics;
+
+import com.example.demo.exception.SqlBudgetExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL executed by each HTTP request and checks it against the configured budgets.
+ */
+@Component
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    @Autowired
+    private SqlBudgetProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementScope scope = SqlStatementScope.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+        }
+
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return;
+        }
+        logger.debug("{} {} ran {}", request.getMethod(), pattern, scope);
+        for (SqlBudgetProperties.Budget budget : properties.getBudgets().values()) {
+            if (budget.matches(request.getMethod(), pattern)) {
+                int allowed = budget.allowedStatements(scope.getWorkItems());
+                if (scope.getStatements() > allowed) {
+                    String message = request.getMethod() + " " + pattern + " exceeded its budget of " + allowed
+                            + " statements for " + scope.getWorkItems() + " items: " + scope;
+                    if (properties.isFailOnBudgetExceeded()) {
+                        throw new SqlBudgetExceededException(message);
+                    }
+                    logger.warn(message);
+                }
+            }
+        }
+    }
+}
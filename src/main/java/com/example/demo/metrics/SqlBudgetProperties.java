@@ -0,0 +1,119 @@
+package com.example.demo.metrics;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Slow query and statement budget settings, bound from {@code demo.sql.*}. A budget allows
+ * {@code base + per-item * N} statements for one request, where N is the number of work items the
+ * request declared through {@link SqlStatementScope#declareWorkItems(int)}.
+ */
+@ConfigurationProperties(prefix = "demo.sql")
+public class SqlBudgetProperties {
+
+    /**
+     * Statements slower than this are logged as warnings.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * Throw instead of logging a warning when a budget is exceeded. Meant for tests.
+     */
+    private boolean failOnBudgetExceeded = false;
+
+    /**
+     * Statements allowed per transaction, 0 for no limit.
+     */
+    private int transactionMaxStatements = 0;
+
+    private Map<String, Budget> budgets = new LinkedHashMap<>();
+
+    public static class Budget {
+
+        private String method;
+
+        /**
+         * The request mapping pattern, e.g. {@code /orders/{id}/cancel}.
+         */
+        private String path;
+
+        private int base;
+
+        private int perItem;
+
+        public int allowedStatements(int workItems) {
+            return base + perItem * workItems;
+        }
+
+        public boolean matches(String method, String path) {
+            return this.method.equalsIgnoreCase(method) && this.path.equals(path);
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getBase() {
+            return base;
+        }
+
+        public void setBase(int base) {
+            this.base = base;
+        }
+
+        public int getPerItem() {
+            return perItem;
+        }
+
+        public void setPerItem(int perItem) {
+            this.perItem = perItem;
+        }
+    }
+
+    public Duration getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public boolean isFailOnBudgetExceeded() {
+        return failOnBudgetExceeded;
+    }
+
+    public void setFailOnBudgetExceeded(boolean failOnBudgetExceeded) {
+        this.failOnBudgetExceeded = failOnBudgetExceeded;
+    }
+
+    public int getTransactionMaxStatements() {
+        return transactionMaxStatements;
+    }
+
+    public void setTransactionMaxStatements(int transactionMaxStatements) {
+        this.transactionMaxStatements = transactionMaxStatements;
+    }
+
+    public Map<String, Budget> getBudgets() {
+        return budgets;
+    }
+
+    public void setBudgets(Map<String, Budget> budgets) {
+        this.budgets = budgets;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.metrics;
+
+import com.example.demo.exception.SqlBudgetExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives every statement executed through the proxied data source. It records a latency histogram per
+ * statement type, warns about slow statements, and adds the statement to the open
+ * {@link SqlStatementScope}s and to the running transaction's counters.
+ */
+@Component
+public class SqlStatementListener implements QueryExecutionListener, MethodExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementListener.class);
+
+    private static final Object TRANSACTION_STATS_KEY = new Object();
+
+    private static final String START_NANOS = SqlStatementListener.class.getName() + ".startNanos";
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SqlBudgetProperties properties;
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // ExecutionInfo.getElapsedTime() only has millisecond resolution, most statements take less
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        int statements = execInfo.isBatch() ? execInfo.getBatchSize() : Math.max(queryInfoList.size(), 1);
+        long rows = updatedRows(execInfo.getResult());
+        Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+        long elapsed = start != null ? System.nanoTime() - start : TimeUnit.MILLISECONDS.toNanos(execInfo.getElapsedTime());
+
+        timer(statementType(sql), execInfo.isBatch()).record(elapsed, TimeUnit.NANOSECONDS);
+        if (elapsed >= properties.getSlowQueryThreshold().toNanos()) {
+            logger.warn("Slow query ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(elapsed), sql);
+        }
+
+        SqlStatementScope.recordOnThread(statements, rows, elapsed);
+        SqlStatementStats transactionStats = currentTransactionStats();
+        if (transactionStats != null) {
+            transactionStats.recordExecution(statements, rows, elapsed);
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && "next".equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())) {
+            SqlStatementScope.recordFetchedRowOnThread();
+            SqlStatementStats transactionStats = currentTransactionStats();
+            if (transactionStats != null) {
+                transactionStats.recordFetchedRow();
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of the running transaction, registering them on its first statement. They are
+     * bound as a transaction resource, so they are suspended and resumed along with the transaction.
+     */
+    private SqlStatementStats currentTransactionStats() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        SqlStatementStats stats = (SqlStatementStats) TransactionSynchronizationManager.getResource(TRANSACTION_STATS_KEY);
+        if (stats == null) {
+            stats = new SqlStatementStats();
+            TransactionSynchronizationManager.bindResource(TRANSACTION_STATS_KEY, stats);
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionStatsSynchronization(stats, TransactionSynchronizationManager.getCurrentTransactionName()));
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the latency timer of a statement type, built once per type instead of on every statement.
+     */
+    private Timer timer(String type, boolean batch) {
+        return timers.computeIfAbsent(type + (batch ? ":batch" : ""), key -> Timer.builder("demo.sql.statement")
+                .tag("type", type)
+                .tag("batch", String.valueOf(batch))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private long updatedRows(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+        return 0;
+    }
+
+    private String statementType(String sql) {
+        String trimmed = sql.stripLeading().toLowerCase(Locale.ROOT);
+        for (String type : new String[]{"select", "insert", "update", "delete"}) {
+            if (trimmed.startsWith(type)) {
+                return type;
+            }
+        }
+        return "other";
+    }
+
+    private class TransactionStatsSynchronization implements TransactionSynchronization {
+
+        private final SqlStatementStats stats;
+
+        private final String transactionName;
+
+        TransactionStatsSynchronization(SqlStatementStats stats, String transactionName) {
+            this.stats = stats;
+            this.transactionName = transactionName;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_STATS_KEY);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_STATS_KEY, stats);
+        }
+
+        @Override
+        public void afterCommit() {
+            // Checked after commit so statements flushed during the commit are included
+            int max = properties.getTransactionMaxStatements();
+            if (max > 0 && stats.getStatements() > max) {
+                String message = "Transaction " + transactionName + " exceeded its budget of " + max
+                        + " statements: " + stats;
+                if (properties.isFailOnBudgetExceeded()) {
+                    throw new SqlBudgetExceededException(message);
+                }
+                logger.warn(message);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_STATS_KEY);
+            logger.debug("Transaction {} ran {}", transactionName, stats);
+        }
+    }
+}
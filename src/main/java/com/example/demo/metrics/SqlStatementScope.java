@@ -0,0 +1,66 @@
+package com.example.demo.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Counts the SQL executed on the current thread while the scope is open. Scopes nest, a statement is
+ * counted in every open scope. Typical use in a test:
+ * <pre>
+ * try (SqlStatementScope scope = SqlStatementScope.open()) {
+ *     orderService.placeOrderWithLocking(order);
+ *     assertEquals(6, scope.getStatements());
+ * }
+ * </pre>
+ */
+public final class SqlStatementScope extends SqlStatementStats implements AutoCloseable {
+
+    private static final ThreadLocal<Deque<SqlStatementScope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private int workItems;
+
+    private SqlStatementScope() {
+    }
+
+    public static SqlStatementScope open() {
+        SqlStatementScope scope = new SqlStatementScope();
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    /**
+     * Tells the innermost open scope how many items the current unit of work handles, e.g. the lines
+     * of an order, so that per-item statement budgets can be applied. Does nothing without a scope.
+     */
+    public static void declareWorkItems(int workItems) {
+        SqlStatementScope scope = SCOPES.get().peek();
+        if (scope != null) {
+            scope.workItems = workItems;
+        }
+    }
+
+    static void recordOnThread(int statements, long rows, long elapsedNanos) {
+        for (SqlStatementScope scope : SCOPES.get()) {
+            scope.recordExecution(statements, rows, elapsedNanos);
+        }
+    }
+
+    static void recordFetchedRowOnThread() {
+        for (SqlStatementScope scope : SCOPES.get()) {
+            scope.recordFetchedRow();
+        }
+    }
+
+    public int getWorkItems() {
+        return workItems;
+    }
+
+    @Override
+    public void close() {
+        Deque<SqlStatementScope> scopes = SCOPES.get();
+        scopes.remove(this);
+        if (scopes.isEmpty()) {
+            SCOPES.remove();
+        }
+    }
+}
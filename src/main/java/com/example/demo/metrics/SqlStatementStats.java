@@ -0,0 +1,49 @@
+package com.example.demo.metrics;
+
+/**
+ * Statement, round trip and row counters for one unit of work. A JDBC batch counts as one round trip
+ * but as one statement per batched entry. Rows are the rows updated plus the rows fetched.
+ */
+public class SqlStatementStats {
+
+    private long statements;
+
+    private long roundTrips;
+
+    private long rows;
+
+    private long elapsedNanos;
+
+    void recordExecution(int statements, long rows, long elapsedNanos) {
+        this.statements += statements;
+        this.roundTrips++;
+        this.rows += rows;
+        this.elapsedNanos += elapsedNanos;
+    }
+
+    void recordFetchedRow() {
+        this.rows++;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRoundTrips() {
+        return roundTrips;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements in " + roundTrips + " round trips, " + rows + " rows, "
+                + String.format("%.3f", elapsedNanos / 1_000_000.0) + " ms";
+    }
+}
@@ -2,8 +2,26 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    /**
+     * Sums the ordered quantity per product across the given orders, which were all created between
+     * {@code from} and {@code to}. The bounds on the partition key limit the scan to those months.
+     *
+     * @return rows of {@code [productId, quantity]} ordered by product id
+     */
+    @Query("select oi.product.id, sum(oi.quantity) from OrderItem oi "
+            + "where oi.order.id in :orderIds and oi.orderCreatedAt between :from and :to "
+            + "group by oi.product.id order by oi.product.id")
+    List<Object[]> sumQuantityByProduct(@Param("orderIds") Collection<Long> orderIds, @Param("from") Instant from,
+                                        @Param("to") Instant to);
 }
@@ -1,9 +1,43 @@
 package com.example.demo.repository;
 
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.dto.OrderTransition;
 import com.example.demo.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Moves the given orders to a new status in a single statement. Orders that are not in one of
+     * the {@code from} statuses are skipped. This bypasses the persistence context, so managed orders are stale
+     * afterwards. Only the ids are known here, so every attached partition's primary key index is probed.
+     *
+     * @return the orders that were updated, with the creation times that bound the queries on their items
+     */
+    @Query(value = "UPDATE order_table SET status = :to WHERE id IN (:ids) AND status IN (:from) "
+            + "RETURNING id AS \"id\", created_at AS \"createdAt\", stock_reserved AS \"stockReserved\"",
+            nativeQuery = true)
+    List<OrderTransition> transitionStatus(@Param("ids") Collection<Long> ids, @Param("from") Collection<String> from,
+                                @Param("to") String to);
+
+    @Query("select distinct o from Order o left join fetch o.items i left join fetch i.product where o.id = :id")
+    Optional<Order> findWithItemsById(@Param("id") Long id);
+
+    /**
+     * Finds orders in a status created before a cutoff. The bound on the partition key lets PostgreSQL
+     * skip every monthly partition after the cutoff.
+     */
+    @Query("select o.id from Order o where o.status = :status and o.createdAt < :before order by o.id")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") OrderStatus status, @Param("before") Instant before,
+                                            Pageable pageable);
 }
@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.entity.OrderSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface OrderSnapshotRepository extends JpaRepository<OrderSnapshot, Long> {
+
+    @Modifying
+    @Query("update OrderSnapshot s set s.status = :status where s.orderId in :orderIds")
+    int updateStatus(@Param("orderIds") Collection<Long> orderIds, @Param("status") OrderStatus status);
+}
@@ -0,0 +1,29 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.StatusDailyCount;
+import com.example.demo.entity.OrderStatusDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderStatusDailyRepository extends JpaRepository<OrderStatusDaily, OrderStatusDaily.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO order_status_daily (status, stat_date, shard, order_count) "
+            + "VALUES (:status, CURRENT_DATE, :shard, :count) "
+            + "ON CONFLICT (status, stat_date, shard) DO UPDATE SET "
+            + "order_count = order_status_daily.order_count + EXCLUDED.order_count",
+            nativeQuery = true)
+    int add(@Param("status") String status, @Param("shard") int shard, @Param("count") long count);
+
+    @Query("select new com.example.demo.dto.StatusDailyCount(s.status, s.statDate, sum(s.orderCount)) "
+            + "from OrderStatusDaily s where s.statDate between :from and :to "
+            + "group by s.status, s.statDate order by s.statDate, s.status")
+    List<StatusDailyCount> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ProductDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductDailySalesRepository extends JpaRepository<ProductDailySales, ProductDailySales.Key> {
+
+    /**
+     * Adds the items of the given orders, created between {@code from} and {@code to}, to today's rollup
+     * rows with one upsert. Rows are written in product id order. Callers lock the products first, so
+     * placements and cancellations touching the same rollup rows are already serialized on the products.
+     * The creation time bounds limit the read to the partitions holding the items.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_daily_sales (product_id, sales_date, units_sold, units_cancelled, revenue_minor) "
+            + "SELECT oi.product_id, CURRENT_DATE, SUM(oi.quantity), 0, SUM(oi.line_total_minor) "
+            + "FROM order_item oi WHERE oi.order_id IN (:orderIds) AND oi.order_created_at BETWEEN :from AND :to "
+            + "GROUP BY oi.product_id ORDER BY oi.product_id "
+            + "ON CONFLICT (product_id, sales_date) DO UPDATE SET "
+            + "units_sold = product_daily_sales.units_sold + EXCLUDED.units_sold, "
+            + "revenue_minor = product_daily_sales.revenue_minor + EXCLUDED.revenue_minor",
+            nativeQuery = true)
+    int addSold(@Param("orderIds") Collection<Long> orderIds, @Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Adds the items of the given cancelled orders, created between {@code from} and {@code to}, to
+     * today's rollup rows with one upsert. Like {@link #addSold}, it runs after the products are locked.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_daily_sales (product_id, sales_date, units_sold, units_cancelled, revenue_minor) "
+            + "SELECT oi.product_id, CURRENT_DATE, 0, SUM(oi.quantity), -SUM(oi.line_total_minor) "
+            + "FROM order_item oi WHERE oi.order_id IN (:orderIds) AND oi.order_created_at BETWEEN :from AND :to "
+            + "GROUP BY oi.product_id ORDER BY oi.product_id "
+            + "ON CONFLICT (product_id, sales_date) DO UPDATE SET "
+            + "units_cancelled = product_daily_sales.units_cancelled + EXCLUDED.units_cancelled, "
+            + "revenue_minor = product_daily_sales.revenue_minor + EXCLUDED.revenue_minor",
+            nativeQuery = true)
+    int addCancelled(@Param("orderIds") Collection<Long> orderIds, @Param("from") Instant from,
+                     @Param("to") Instant to);
+
+    List<ProductDailySales> findBySalesDateBetweenOrderBySalesDateAscProductIdAsc(LocalDate from, LocalDate to);
+}
@@ -1,9 +1,39 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Locks the given products with a single {@code SELECT ... FOR UPDATE}. Rows are locked in ascending
+     * id order, so callers locking overlapping sets of products always queue up in the same sequence.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Takes {@code quantity} off the stock in one statement, unless that would make it negative.
+     *
+     * @return the product price if the stock was decremented, empty if the product is missing or has
+     * too little stock
+     */
+    @Query(value = "UPDATE product SET quantity = quantity - :quantity WHERE id = :id AND quantity >= :quantity "
+            + "RETURNING price", nativeQuery = true)
+    List<BigDecimal> decreaseQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.quantity = p.quantity + :quantity where p.id = :id")
+    int increaseQuantity(@Param("id") Long id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,57 @@
+package com.example.demo.runner;
+
+import com.example.demo.service.BulkLoadService;
+import com.example.demo.service.BulkLoadService.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Seeds the database on startup when any of the {@code demo.bulk-load.*} files is given, e.g.
+ * {@code --demo.bulk-load.products=products.csv --demo.bulk-load.orders=orders.ndjson}.
+ */
+@Component
+public class BulkLoadRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoadRunner.class);
+
+    @Autowired
+    private BulkLoadService bulkLoadService;
+
+    @Value("${demo.bulk-load.products:}")
+    private String productsFile;
+
+    @Value("${demo.bulk-load.orders:}")
+    private String ordersFile;
+
+    @Value("${demo.bulk-load.order-items:}")
+    private String orderItemsFile;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Map<Table, Path> files = new EnumMap<>(Table.class);
+        addFile(files, Table.PRODUCT, productsFile);
+        addFile(files, Table.ORDER, ordersFile);
+        addFile(files, Table.ORDER_ITEM, orderItemsFile);
+        if (files.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<Table, Long> copied = bulkLoadService.load(files);
+        logger.info("Bulk load finished in {} ms: {}", (System.nanoTime() - start) / 1_000_000, copied);
+    }
+
+    private void addFile(Map<Table, Path> files, Table table, String file) {
+        if (!file.isBlank()) {
+            files.put(table, Path.of(file));
+        }
+    }
+}
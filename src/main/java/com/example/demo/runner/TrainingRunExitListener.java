@@ -0,0 +1,31 @@
+package com.example.demo.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready when {@code demo.startup.training-run} is set. The
+ * {@code fast-startup} build profile starts it this way with {@code -XX:ArchiveClassesAtExit}, so the
+ * JVM dumps every class loaded during startup into the CDS archive on exit.
+ */
+@Component
+public class TrainingRunExitListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingRunExitListener.class);
+
+    @Value("${demo.startup.training-run:false}")
+    private boolean trainingRun;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        if (trainingRun) {
+            logger.info("Training run finished, exiting");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Loads products and historical orders straight into PostgreSQL with {@code COPY ... FROM STDIN}.
+ * Input files are streamed through a fixed size buffer, so memory use does not grow with the file.
+ */
+@Service
+public class BulkLoadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoadService.class);
+
+    /**
+     * The tables that can be bulk loaded, in foreign key order. CSV files start with a header row
+     * and list the columns in the order given here; NDJSON records use the column names as keys.
+     * Every order needs a status.
+     */
+    public enum Table {
+        PRODUCT("product", null, "id", "name", "quantity", "price"),
+        ORDER("order_table", "created_at", "id", "created_at", "status", "customer_name", "customer_email",
+                "total_minor"),
+        ORDER_ITEM("order_item", "order_created_at", "id", "order_id", "order_created_at", "product_id", "quantity",
+                "unit_price_minor", "line_total_minor");
+
+        private final String tableName;
+
+        private final String partitionKey;
+
+        private final String[] columns;
+
+        Table(String tableName, String partitionKey, String... columns) {
+            this.tableName = tableName;
+            this.partitionKey = partitionKey;
+            this.columns = columns;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * The column the table is range partitioned by month on, or {@code null} if it is not partitioned.
+         */
+        public String getPartitionKey() {
+            return partitionKey;
+        }
+
+        public String[] getColumns() {
+            return columns;
+        }
+    }
+
+    /**
+     * The timestamp formats PostgreSQL writes and ISO 8601, with an optional time and offset.
+     */
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart()
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .optionalEnd()
+            .optionalStart().appendOffset("+HH:mm", "Z").optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .toFormatter();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+
+    /**
+     * Size of the buffer the input files are streamed through, in characters for CSV and bytes for NDJSON.
+     */
+    @Value("${demo.bulk-load.buffer-size:65536}")
+    private int bufferSize;
+
+    /**
+     * Loads every given file in a single new transaction, checks that COPY stored exactly the records
+     * read from each file, then moves the identity sequences past the loaded ids. Tables without a file
+     * are skipped. Nothing is counted in the tables themselves, so orders placed concurrently neither
+     * disturb the check nor make it scan the tables. The monthly partitions for the orders' creation
+     * times are created first, each in its own transaction, so historical orders do not end up in the
+     * default partition.
+     *
+     * @param files the CSV ({@code .csv}) or NDJSON ({@code .ndjson}, {@code .jsonl}) file per table
+     * @return the number of rows copied per table
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public Map<Table, Long> load(Map<Table, Path> files) throws IOException, SQLException {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        createPartitions(connection, files);
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        Map<Table, Long> copied = new EnumMap<>(Table.class);
+
+        for (Table table : Table.values()) {
+            Path file = files.get(table);
+            if (file == null) {
+                continue;
+            }
+            long rows = isNdjson(file) ? copyNdjson(copyManager, table, file) : copyCsv(copyManager, table, file);
+            resetIdentity(connection, table);
+            copied.put(table, rows);
+            logger.info("Copied {} rows from {} into {}", rows, file, table.getTableName());
+        }
+        return copied;
+    }
+
+    /**
+     * Reads the partition key of every record before anything is copied and creates the partitions
+     * for the months between the earliest and the latest one.
+     */
+    private void createPartitions(Connection connection, Map<Table, Path> files) throws IOException, SQLException {
+        ZoneId sessionZone = null;
+        YearMonth first = null;
+        YearMonth last = null;
+        for (Table table : Table.values()) {
+            Path file = files.get(table);
+            if (file == null || table.getPartitionKey() == null) {
+                continue;
+            }
+            if (sessionZone == null) {
+                sessionZone = sessionZone(connection);
+            }
+            for (YearMonth month : partitionMonths(table, file, sessionZone)) {
+                first = first == null || month.isBefore(first) ? month : first;
+                last = last == null || month.isAfter(last) ? month : last;
+            }
+        }
+        if (first != null) {
+            orderPartitionService.createPartitions(first, (int) first.until(last, ChronoUnit.MONTHS));
+        }
+    }
+
+    private Set<YearMonth> partitionMonths(Table table, Path file, ZoneId sessionZone) throws IOException {
+        Set<YearMonth> months = new HashSet<>();
+        Consumer<String> collector = value -> months.add(partitionMonth(table, value, sessionZone));
+        if (isNdjson(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode value = objectMapper.readTree(line).get(table.getPartitionKey());
+                    if (value != null && !value.isNull()) {
+                        collector.accept(value.asText());
+                    }
+                }
+            }
+        } else {
+            int column = Arrays.asList(table.getColumns()).indexOf(table.getPartitionKey());
+            try (CsvRecordCounter reader = new CsvRecordCounter(Files.newBufferedReader(file, StandardCharsets.UTF_8),
+                    column, collector)) {
+                char[] buffer = new char[bufferSize];
+                while (reader.read(buffer, 0, buffer.length) >= 0) {
+                    // The values are collected while reading
+                }
+            }
+        }
+        return months;
+    }
+
+    /**
+     * The UTC month of a partition key value. Values without an offset are read in the session time
+     * zone, like PostgreSQL does.
+     */
+    private YearMonth partitionMonth(Table table, String value, ZoneId sessionZone) {
+        try {
+            TemporalAccessor parsed = TIMESTAMP.parseBest(value.strip(), OffsetDateTime::from, LocalDateTime::from);
+            Instant instant = parsed instanceof OffsetDateTime offsetDateTime
+                    ? offsetDateTime.toInstant()
+                    : ((LocalDateTime) parsed).atZone(sessionZone).toInstant();
+            return YearMonth.from(instant.atOffset(ZoneOffset.UTC));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Cannot read " + table.getTableName() + "."
+                    + table.getPartitionKey() + " value '" + value + "'", e);
+        }
+    }
+
+    private ZoneId sessionZone(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW TimeZone")) {
+            resultSet.next();
+            return ZoneId.of(resultSet.getString(1));
+        }
+    }
+
+    private long copyCsv(CopyManager copyManager, Table table, Path file) throws IOException, SQLException {
+        try (CsvRecordCounter reader = new CsvRecordCounter(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            long rows = copyManager.copyIn(copySql(table, true), reader, bufferSize);
+            // The header row is not copied
+            long records = Math.max(reader.getRecords() - 1, 0);
+            if (rows != records) {
+                throw new IllegalStateException("Row count mismatch for " + table.getTableName()
+                        + ": read " + records + " records but copied " + rows + " rows");
+            }
+            return rows;
+        }
+    }
+
+    private long copyNdjson(CopyManager copyManager, Table table, Path file) throws IOException, SQLException {
+        CopyIn copyIn = copyManager.copyIn(copySql(table, false));
+        byte[] buffer = new byte[bufferSize];
+        int position = 0;
+        long records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                byte[] row = toCsvRow(objectMapper.readTree(line), table).getBytes(StandardCharsets.UTF_8);
+                if (position + row.length > buffer.length) {
+                    copyIn.writeToCopy(buffer, 0, position);
+                    position = 0;
+                }
+                if (row.length > buffer.length) {
+                    copyIn.writeToCopy(row, 0, row.length);
+                } else {
+                    System.arraycopy(row, 0, buffer, position, row.length);
+                    position += row.length;
+                }
+                records++;
+            }
+            if (position > 0) {
+                copyIn.writeToCopy(buffer, 0, position);
+            }
+            long rows = copyIn.endCopy();
+            if (rows != records) {
+                throw new IllegalStateException("Row count mismatch for " + table.getTableName()
+                        + ": read " + records + " records but copied " + rows + " rows");
+            }
+            return rows;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private String toCsvRow(JsonNode record, Table table) {
+        StringBuilder row = new StringBuilder();
+        String[] columns = table.getColumns();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            JsonNode value = record.get(columns[i]);
+            // An unquoted empty field is NULL in COPY's CSV format
+            if (value != null && !value.isNull()) {
+                row.append('"').append(value.asText().replace("\"", "\"\"")).append('"');
+            }
+        }
+        return row.append('\n').toString();
+    }
+
+    private void resetIdentity(Connection connection, Table table) throws SQLException {
+        String name = table.getTableName();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT setval(pg_get_serial_sequence('" + name + "', 'id'), "
+                    + "COALESCE((SELECT MAX(id) FROM " + name + "), 0) + 1, false)");
+        }
+    }
+
+    private String copySql(Table table, boolean header) {
+        return "COPY " + table.getTableName() + " (" + String.join(", ", table.getColumns()) + ")"
+                + " FROM STDIN WITH (FORMAT csv" + (header ? ", HEADER true" : "") + ")";
+    }
+
+    private boolean isNdjson(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    /**
+     * Counts the CSV records read through it while COPY streams the file. Line breaks inside quoted
+     * fields do not end a record. Blank lines are not records and are dropped, as COPY would reject them.
+     * Optionally hands the values of one column, without their quotes, to a consumer, skipping the header
+     * row and empty (NULL) values.
+     */
+    private static class CsvRecordCounter extends FilterReader {
+
+        private final int column;
+
+        private final Consumer<String> columnValues;
+
+        private final StringBuilder value = new StringBuilder();
+
+        private boolean quoted;
+
+        private boolean inRecord;
+
+        private int field;
+
+        private long records;
+
+        CsvRecordCounter(Reader in) {
+            this(in, -1, null);
+        }
+
+        CsvRecordCounter(Reader in, int column, Consumer<String> columnValues) {
+            super(in);
+            this.column = column;
+            this.columnValues = columnValues;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c;
+            do {
+                c = super.read();
+            } while (c >= 0 && !count((char) c));
+            if (c < 0) {
+                endRecord();
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read;
+            int kept;
+            do {
+                read = super.read(buffer, offset, length);
+                kept = offset;
+                for (int i = offset; i < offset + read; i++) {
+                    if (count(buffer[i])) {
+                        buffer[kept++] = buffer[i];
+                    }
+                }
+            } while (read > 0 && kept == offset);
+            if (read < 0) {
+                endRecord();
+                return read;
+            }
+            return kept - offset;
+        }
+
+        /**
+         * Tracks the record the character belongs to.
+         *
+         * @return whether the character is passed on, line breaks of blank lines are not
+         */
+        private boolean count(char c) {
+            if (c == '"') {
+                // An escaped quote toggles twice
+                quoted = !quoted;
+                inRecord = true;
+            } else if (c == ',' && !quoted) {
+                endField();
+                field++;
+                inRecord = true;
+            } else if ((c == '\n' || c == '\r') && !quoted) {
+                if (!inRecord) {
+                    return false;
+                }
+                if (c == '\n') {
+                    endRecord();
+                }
+            } else {
+                inRecord = true;
+                if (field == column && c != '\r') {
+                    value.append(c);
+                }
+            }
+            return true;
+        }
+
+        private void endField() {
+            // The first record is the header
+            if (field == column && records > 0 && !value.isEmpty()) {
+                columnValues.accept(value.toString());
+            }
+            value.setLength(0);
+        }
+
+        private void endRecord() {
+            if (inRecord) {
+                endField();
+                records++;
+            }
+            inRecord = false;
+            field = 0;
+        }
+
+        long getRecords() {
+            return records + (inRecord ? 1 : 0);
+        }
+    }
+}
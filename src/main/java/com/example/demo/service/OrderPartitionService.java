@@ -0,0 +1,110 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of {@code order_table} and {@code order_item}, see
+ * {@code db/migration/V3__partition_orders_by_month.sql}. Partition bounds are in UTC.
+ */
+@Service
+public class OrderPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPartitionService.class);
+
+    private static final String ARCHIVE_SCHEMA = "order_archive";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Creates the partitions for {@code from} and the following months, so inserts never fall into the
+     * default partition. Existing partitions are left alone. Each month is created in a new transaction,
+     * also when called inside one, so the lock on the parent tables is released right away.
+     */
+    public void createPartitions(YearMonth from, int monthsAhead) {
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = from.plusMonths(i);
+            newTransaction.executeWithoutResult(status -> {
+                createPartition("order_table", month);
+                createPartition("order_item", month);
+            });
+        }
+    }
+
+    /**
+     * Detaches every monthly partition that ends before {@code before} and moves it to the
+     * {@value #ARCHIVE_SCHEMA} schema. Detaching is a catalog change, so the cost does not depend on
+     * the number of rows. A month is skipped while it still has orders that are not COMPLETED or
+     * CANCELLED. Each month is archived in its own transaction.
+     *
+     * @return the archived months
+     */
+    public List<YearMonth> archivePartitions(YearMonth before) {
+        List<YearMonth> archived = new ArrayList<>();
+        for (YearMonth month : listPartitionMonths()) {
+            if (!month.isBefore(before)) {
+                continue;
+            }
+            String orders = "order_table_p" + month.format(SUFFIX);
+            String items = "order_item_p" + month.format(SUFFIX);
+            Boolean open = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + orders
+                    + " WHERE status NOT IN ('COMPLETED', 'CANCELLED'))", Boolean.class);
+            if (Boolean.TRUE.equals(open)) {
+                logger.warn("Not archiving {}: it still has open orders", month);
+                continue;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA);
+                // Items first: their foreign key still points at the attached order partition
+                jdbcTemplate.execute("ALTER TABLE order_item DETACH PARTITION " + items);
+                for (String constraint : jdbcTemplate.queryForList("SELECT conname FROM pg_constraint "
+                        + "WHERE conrelid = ?::regclass AND contype = 'f' AND confrelid = 'order_table'::regclass",
+                        String.class, items)) {
+                    jdbcTemplate.execute("ALTER TABLE " + items + " DROP CONSTRAINT \"" + constraint + "\"");
+                }
+                jdbcTemplate.execute("ALTER TABLE order_table DETACH PARTITION " + orders);
+                jdbcTemplate.execute("ALTER TABLE " + items + " SET SCHEMA " + ARCHIVE_SCHEMA);
+                jdbcTemplate.execute("ALTER TABLE " + orders + " SET SCHEMA " + ARCHIVE_SCHEMA);
+            });
+            archived.add(month);
+            logger.info("Archived the orders of {}", month);
+        }
+        return archived;
+    }
+
+    private void createPartition(String table, YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_p" + month.format(SUFFIX)
+                + " PARTITION OF " + table + " FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00')"
+                + " TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')");
+    }
+
+    private List<YearMonth> listPartitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = 'order_table' AND c.relname ~ '^order_table_p[0-9]{4}_[0-9]{2}$' "
+                + "ORDER BY c.relname", String.class)) {
+            months.add(YearMonth.parse(name.substring("order_table_p".length()), SUFFIX));
+        }
+        return months;
+    }
+}
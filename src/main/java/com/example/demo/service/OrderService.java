@@ -1,21 +1,40 @@
 package com.example.demo.service;
 
 import com.example.demo.constant.OrderStatus;
+import com.example.demo.dto.OrderTransition;
 import com.example.demo.entity.Order;
 import com.example.demo.entity.OrderItem;
 import com.example.demo.entity.Product;
+import com.example.demo.event.OrderPlacedEvent;
+import com.example.demo.exception.IllegalStatusTransitionException;
 import com.example.demo.exception.InsufficientStockException;
 import com.example.demo.repository.OrderItemRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.ProductRepository;
+import com.example.demo.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 @Service
 public class OrderService {
+    private static final int STATUS_UPDATE_CHUNK_SIZE = 1000;
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -28,6 +47,15 @@ public class OrderService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private OrderSnapshotService orderSnapshotService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private TransactionTemplate transactionTemplate;
 
@@ -40,29 +68,68 @@ public class OrderService {
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public void placeOrder(Order order) {
-        // Save the order
+        for (OrderItem item : order.getItems()) {
+            // Update the stock quantity, which also prices the item
+            reserveStock(item);
+            item.setOrder(order);
+        }
+
+        // Save the order, the cascade inserts each item once with its final price
+        order.setTotalMinor(totalMinor(order));
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setStockReserved(true);
         orderRepository.save(order);
+        statisticsService.recordOrderPlaced(order.getId(), order.getCreatedAt());
+        eventPublisher.publishEvent(new OrderPlacedEvent(order.getId()));
+    }
 
+    /**
+     * Places an order with pessimistic locking. The quantities are summed per product, then all products
+     * are locked with one {@code SELECT ... FOR UPDATE} in ascending id order. Concurrent orders touching
+     * the same products therefore take their locks in the same sequence and cannot deadlock, whatever
+     * the order of their lines. Stock is only decremented once every line has been checked.
+     *
+     * @param order the order to be placed
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void placeOrderWithLocking(Order order) {
+        Map<Long, Integer> requested = new TreeMap<>();
         for (OrderItem item : order.getItems()) {
-            // Find the product
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            requested.merge(productId(item), item.getQuantity(), Integer::sum);
+        }
 
-            // Update the stock quantity
-            int newQuantity = product.getQuantity() - item.getQuantity();
-            if (newQuantity < 0) {
+        // Lock every product up front in a deterministic order
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIdForUpdate(requested.keySet())) {
+            products.put(product.getId(), product);
+        }
+        requested.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
+            if (product.getQuantity() < quantity) {
                 throw new RuntimeException("Insufficient stock");
             }
-            product.setQuantity(newQuantity);
-            productRepository.save(product);
+        });
 
-            // Save the order item
+        // Apply the decrements, they are flushed on commit
+        requested.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            product.setQuantity(product.getQuantity() - quantity);
+        });
+
+        for (OrderItem item : order.getItems()) {
             item.setOrder(order);
-            orderItemRepository.save(item);
+            item.setProduct(products.get(item.getProduct().getId()));
+            applyPrice(item, item.getProduct().getPrice());
         }
-
-        order.setStatus(OrderStatus.COMPLETED);
+        order.setTotalMinor(totalMinor(order));
+        order.setStatus(OrderStatus.PROCESSING);
+        order.setStockReserved(true);
         orderRepository.save(order);
+        statisticsService.recordOrderPlaced(order.getId(), order.getCreatedAt());
+        eventPublisher.publishEvent(new OrderPlacedEvent(order.getId()));
     }
 
     /**
@@ -89,17 +156,8 @@ public class OrderService {
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void updateProductQuantity(OrderItem item) {
-        // Find the product
-        Product product = productRepository.findById(item.getProduct().getId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
         // Update the stock quantity
-        int newQuantity = product.getQuantity() - item.getQuantity();
-        if (newQuantity < 0) {
-            throw new RuntimeException("Insufficient stock");
-        }
-        product.setQuantity(newQuantity);
-        productRepository.save(product);
+        reserveStock(item);
     }
 
     /**
@@ -115,6 +173,15 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
 
+    /**
+     * Loads an order together with its items and their products in one query.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Order getOrderWithItems(Long id) {
+        return orderRepository.findWithItemsById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+    }
+
     /**
      * Example of NOT_SUPPORTED propagation. The method will execute non-transactionally,
      * suspending any existing transaction if one exists. This propagation option is useful
@@ -129,15 +196,181 @@ public class OrderService {
      * Example of MANDATORY propagation. The method will execute within an existing transaction,
      * or throw a IllegalTransactionStateException if none exists. This propagation option is useful
      * when you want to ensure that a method is executed within a transaction and do not want
-     * to allow it to be called non-transactionally.
+     * to allow it to be called non-transactionally. Moving an order to CANCELLED cancels it, returning any
+     * stock it reserved.
      *
+     * @throws IllegalStatusTransitionException if the order may not move to the given status
      */
     @Transactional(propagation = Propagation.MANDATORY)
     public void updateOrderStatus(Long orderId, OrderStatus status) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!order.getStatus().canTransitionTo(status)) {
+            throw new IllegalStatusTransitionException(order.getStatus(), status);
+        }
+        if (status == OrderStatus.CANCELLED) {
+            cancel(List.of(orderId), List.of(order.getStatus().name()));
+            // Keep the managed order in step with the bulk update
+            order.setStatus(status);
+            return;
+        }
         order.setStatus(status);
         orderRepository.save(order);
+        orderSnapshotService.updateStatus(List.of(orderId), status);
+        statisticsService.recordStatusChange(status, 1);
+    }
+
+    /**
+     * Moves all given orders that are currently in {@code from} to {@code to}. Instead of loading and
+     * saving each order, one set-based UPDATE is issued per chunk of ids. Orders that do not exist or
+     * are no longer in {@code from} are left untouched. Moving orders to CANCELLED cancels them, returning
+     * any stock they reserved.
+     *
+     * @param orderIds the orders to transition
+     * @param from the status the orders are expected to be in
+     * @param to the new status
+     * @return the ids of the orders that transitioned
+     * @throws IllegalStatusTransitionException if {@code from} may not move to {@code to}
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<Long> transitionOrderStatus(Collection<Long> orderIds, OrderStatus from, OrderStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalStatusTransitionException(from, to);
+        }
+        if (to == OrderStatus.CANCELLED) {
+            return cancel(orderIds, List.of(from.name()));
+        }
+        List<Long> transitioned = ids(transition(orderIds, List.of(from.name()), to));
+        statisticsService.recordStatusChange(to, transitioned.size());
+        return transitioned;
+    }
+
+    /**
+     * Cancels a single order and returns its items to stock.
+     *
+     * @param orderId the order to cancel
+     * @throws IllegalStatusTransitionException if the order can no longer be cancelled
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void cancelOrder(Long orderId) {
+        if (cancelOrders(List.of(orderId)).isEmpty()) {
+            Order order = getOrder(orderId);
+            throw new IllegalStatusTransitionException(order.getStatus(), OrderStatus.CANCELLED);
+        }
+    }
+
+    /**
+     * Cancels every given order that is still cancellable and returns the quantities the placed ones
+     * reserved to stock. The quantities are summed per product across all cancelled orders first, so
+     * each product is updated once, in ascending id order, no matter how many orders or items reference it.
+     * The items are read in chunks of orders sorted by creation time, each bounded to the partitions
+     * its creation times span.
+     *
+     * @param orderIds the orders to cancel
+     * @return the ids of the orders that were cancelled
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<Long> cancelOrders(Collection<Long> orderIds) {
+        List<String> cancellable = Arrays.stream(OrderStatus.values())
+                .filter(status -> status.canTransitionTo(OrderStatus.CANCELLED))
+                .map(Enum::name)
+                .toList();
+        return cancel(orderIds, cancellable);
+    }
+
+    /**
+     * Cancels the given orders that are in one of the {@code cancellable} statuses and returns their
+     * reserved stock. Every move to CANCELLED goes through here. Like placing an order, it locks the
+     * products before the rollup rows of the same products, so a placement and a cancellation cannot
+     * deadlock on them.
+     */
+    private List<Long> cancel(Collection<Long> orderIds, List<String> cancellable) {
+        List<OrderTransition> cancelled = transition(orderIds, cancellable, OrderStatus.CANCELLED);
+
+        // Orders that were never placed reserved no stock
+        List<OrderTransition> reserved = cancelled.stream()
+                .filter(OrderTransition::getStockReserved)
+                .sorted(Comparator.comparing(OrderTransition::getCreatedAt))
+                .toList();
+        List<List<OrderTransition>> chunks = new ArrayList<>();
+        Map<Long, Long> restored = new TreeMap<>();
+        for (int start = 0; start < reserved.size(); start += STATUS_UPDATE_CHUNK_SIZE) {
+            List<OrderTransition> chunk = reserved.subList(start, Math.min(start + STATUS_UPDATE_CHUNK_SIZE, reserved.size()));
+            for (Object[] row : orderItemRepository.sumQuantityByProduct(ids(chunk), firstCreatedAt(chunk),
+                    lastCreatedAt(chunk))) {
+                restored.merge((Long) row[0], (Long) row[1], Long::sum);
+            }
+            chunks.add(chunk);
+        }
+        restored.forEach((productId, quantity) ->
+                productRepository.increaseQuantity(productId, Math.toIntExact(quantity)));
+
+        // The rollups only once every product involved is locked
+        for (List<OrderTransition> chunk : chunks) {
+            statisticsService.recordOrdersCancelled(ids(chunk), firstCreatedAt(chunk), lastCreatedAt(chunk));
+        }
+        statisticsService.recordStatusChange(OrderStatus.CANCELLED, cancelled.size());
+        return ids(cancelled);
+    }
+
+    /**
+     * Decrements the stock of the item's product with a single guarded UPDATE. Unlike loading the product
+     * and saving it back, concurrent reservations cannot overwrite each other or take the stock below zero.
+     * The same statement returns the current price, which is recorded on the item.
+     */
+    private void reserveStock(OrderItem item) {
+        Long productId = productId(item);
+        List<BigDecimal> price = productRepository.decreaseQuantity(productId, item.getQuantity());
+        if (price.isEmpty()) {
+            if (!productRepository.existsById(productId)) {
+                throw new RuntimeException("Product not found");
+            }
+            throw new RuntimeException("Insufficient stock");
+        }
+        applyPrice(item, price.get(0));
+    }
+
+    private Long productId(OrderItem item) {
+        if (item.getProduct() == null || item.getProduct().getId() == null) {
+            throw new RuntimeException("Product not found");
+        }
+        return item.getProduct().getId();
+    }
+
+    private void applyPrice(OrderItem item, BigDecimal price) {
+        item.setUnitPriceMinor(Money.toMinor(price));
+        item.setLineTotalMinor(Math.multiplyExact(item.getUnitPriceMinor(), (long) item.getQuantity()));
+    }
+
+    private long totalMinor(Order order) {
+        long total = 0;
+        for (OrderItem item : order.getItems()) {
+            total = Math.addExact(total, item.getLineTotalMinor());
+        }
+        return total;
+    }
+
+    private List<OrderTransition> transition(Collection<Long> orderIds, List<String> from, OrderStatus to) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        List<OrderTransition> transitioned = new ArrayList<>(ids.size());
+        for (int start = 0; start < ids.size(); start += STATUS_UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(start + STATUS_UPDATE_CHUNK_SIZE, ids.size()));
+            transitioned.addAll(orderRepository.transitionStatus(chunk, from, to.name()));
+        }
+        orderSnapshotService.updateStatus(ids(transitioned), to);
+        return transitioned;
+    }
+
+    private List<Long> ids(List<OrderTransition> transitions) {
+        return transitions.stream().map(OrderTransition::getId).toList();
+    }
+
+    private Instant firstCreatedAt(List<OrderTransition> sortedTransitions) {
+        return sortedTransitions.get(0).getCreatedAt();
+    }
+
+    private Instant lastCreatedAt(List<OrderTransition> sortedTransitions) {
+        return sortedTransitions.get(sortedTransitions.size() - 1).getCreatedAt();
     }
 
     /**
@@ -174,17 +407,8 @@ public class OrderService {
         orderRepository.save(order);
 
         for (OrderItem item : order.getItems()) {
-            // Find the product
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
-
             // Update the stock quantity
-            int newQuantity = product.getQuantity() - item.getQuantity();
-            if (newQuantity < 0) {
-                throw new RuntimeException("Insufficient stock");
-            }
-            product.setQuantity(newQuantity);
-            productRepository.save(product);
+            reserveStock(item);
 
             // Save the order item
             item.setOrder(order);
@@ -197,5 +421,6 @@ public class OrderService {
                 throw new RuntimeException("Error updating product quantity");
             }
         }
+        order.setTotalMinor(totalMinor(order));
     }
 }
@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderItem;
+import com.example.demo.entity.OrderSnapshot;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.OrderSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Maintains the optional {@link OrderSnapshot} read model, enabled with {@code demo.order-snapshot.enabled}.
+ */
+@Service
+public class OrderSnapshotService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSnapshotRepository orderSnapshotRepository;
+
+    @Value("${demo.order-snapshot.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the snapshot of a committed order. Runs after the placing transaction has completed, so it
+     * needs a transaction of its own: REQUIRES_NEW.
+     *
+     * @param orderId the order to snapshot
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void writeSnapshot(Long orderId) {
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+
+        OrderSnapshot.Contents contents = new OrderSnapshot.Contents();
+        contents.setCustomerName(order.getCustomerName());
+        contents.setCustomerEmail(order.getCustomerEmail());
+        contents.setTotal(order.getTotal());
+        for (OrderItem item : order.getItems()) {
+            OrderSnapshot.Line line = new OrderSnapshot.Line();
+            line.setProductId(item.getProduct().getId());
+            line.setProductName(item.getProduct().getName());
+            line.setUnitPrice(item.getUnitPrice());
+            line.setQuantity(item.getQuantity());
+            contents.getLines().add(line);
+        }
+
+        OrderSnapshot snapshot = new OrderSnapshot();
+        snapshot.setOrderId(order.getId());
+        snapshot.setStatus(order.getStatus());
+        snapshot.setContents(contents);
+        orderSnapshotRepository.save(snapshot);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<OrderSnapshot> findSnapshot(Long orderId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return orderSnapshotRepository.findById(orderId);
+    }
+
+    /**
+     * Keeps the status of existing snapshots in step with their orders, in the caller's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateStatus(Collection<Long> orderIds, OrderStatus status) {
+        if (enabled && !orderIds.isEmpty()) {
+            orderSnapshotRepository.updateStatus(orderIds, status);
+        }
+    }
+}
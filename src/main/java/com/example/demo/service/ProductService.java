@@ -49,17 +49,17 @@ public class ProductService {
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void updateProductQuantityWithRequiresNewPropagation(OrderItem item) {
-        // Find the product
-        Product product = productRepository.findById(item.getProduct().getId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        // Update the stock quantity
-        int newQuantity = product.getQuantity() - item.getQuantity();
-        if (newQuantity < 0) {
+        // Update the stock quantity with a guarded UPDATE, so concurrent updates cannot be lost
+        Long productId = item.getProduct().getId();
+        if (productId == null) {
+            throw new RuntimeException("Product not found");
+        }
+        if (productRepository.decreaseQuantity(productId, item.getQuantity()).isEmpty()) {
+            if (!productRepository.existsById(productId)) {
+                throw new RuntimeException("Product not found");
+            }
             throw new RuntimeException("Insufficient stock");
         }
-        product.setQuantity(newQuantity);
-        productRepository.save(product);
     }
 
     /**
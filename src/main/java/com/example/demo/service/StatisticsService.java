@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.dto.ProductDailySalesCount;
+import com.example.demo.dto.SalesStatistics;
+import com.example.demo.repository.OrderStatusDailyRepository;
+import com.example.demo.repository.ProductDailySalesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps the daily sales rollups up to date and reads them. The record methods use MANDATORY propagation:
+ * they must run in the transaction that places or cancels the orders, so the rollups commit or roll
+ * back together with them.
+ */
+@Service
+public class StatisticsService {
+
+    private static final int STATUS_SHARDS = 8;
+
+    @Autowired
+    private ProductDailySalesRepository productDailySalesRepository;
+
+    @Autowired
+    private OrderStatusDailyRepository orderStatusDailyRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrderPlaced(Long orderId, Instant createdAt) {
+        productDailySalesRepository.addSold(List.of(orderId), createdAt, createdAt);
+        recordStatusChange(OrderStatus.PROCESSING, 1);
+    }
+
+    /**
+     * Records the cancelled items per product of orders created between {@code from} and {@code to}. Call
+     * it after the stock of the products has been restored, and record the status count separately.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrdersCancelled(Collection<Long> orderIds, Instant from, Instant to) {
+        if (!orderIds.isEmpty()) {
+            productDailySalesRepository.addCancelled(orderIds, from, to);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(OrderStatus status, long count) {
+        if (count > 0) {
+            orderStatusDailyRepository.add(status.name(), ThreadLocalRandom.current().nextInt(STATUS_SHARDS), count);
+        }
+    }
+
+    /**
+     * Reads only the rollups, so the cost depends on the date range and not on the order history.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public SalesStatistics getStatistics(LocalDate from, LocalDate to) {
+        return new SalesStatistics(from, to,
+                productDailySalesRepository.findBySalesDateBetweenOrderBySalesDateAscProductIdAsc(from, to).stream()
+                        .map(ProductDailySalesCount::from)
+                        .toList(),
+                orderStatusDailyRepository.sumByDay(from, to));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+
+/**
+ * Wraps every {@code @Transactional} boundary in an observation, so each boundary becomes a span with
+ * the JDBC statements it ran as children. The aspect runs outside the transaction interceptor, which
+ * lets it see whether a transaction was already active and therefore whether the boundary starts a
+ * new transaction, joins one, suspends one or sets a savepoint.
+ * <p>
+ * Self-invocations such as {@code placeOrderNoRollback} calling {@code placeOrder} are not proxied and
+ * produce no span, just as they start no transaction boundary.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TransactionObservationAspect {
+
+    private final TransactionAttributeSource transactionAttributeSource = new AnnotationTransactionAttributeSource();
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Around("@annotation(org.springframework.transaction.annotation.Transactional) && within(com.example.demo..*)")
+    public Object observe(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        TransactionAttribute attribute = transactionAttributeSource.getTransactionAttribute(method, targetClass);
+        if (attribute == null) {
+            return joinPoint.proceed();
+        }
+
+        Propagation propagation = propagationOf(attribute.getPropagationBehavior());
+        boolean outerActive = TransactionSynchronizationManager.isActualTransactionActive();
+        Observation observation = Observation.createNotStarted("demo.transaction", observationRegistry)
+                .contextualName(targetClass.getSimpleName() + "#" + method.getName())
+                .lowCardinalityKeyValue("tx.propagation", propagation.name())
+                .lowCardinalityKeyValue("tx.isolation", isolationOf(attribute.getIsolationLevel()).name())
+                .lowCardinalityKeyValue("tx.read-only", String.valueOf(attribute.isReadOnly()))
+                .lowCardinalityKeyValue("tx.mode", modeOf(propagation, outerActive))
+                .lowCardinalityKeyValue("tx.suspends-outer", String.valueOf(outerActive
+                        && (propagation == Propagation.REQUIRES_NEW || propagation == Propagation.NOT_SUPPORTED)))
+                .lowCardinalityKeyValue("tx.savepoint", String.valueOf(outerActive && propagation == Propagation.NESTED))
+                .start();
+
+        try (Observation.Scope scope = observation.openScope()) {
+            Object result = joinPoint.proceed();
+            observation.lowCardinalityKeyValue("tx.rollback", "false");
+            return result;
+        } catch (Throwable ex) {
+            boolean rollback = attribute.rollbackOn(ex);
+            observation.lowCardinalityKeyValue("tx.rollback", String.valueOf(rollback));
+            if (rollback) {
+                observation.highCardinalityKeyValue("tx.rollback-cause", ex.getClass().getName() + ": " + ex.getMessage());
+            }
+            observation.error(ex);
+            throw ex;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Describes what the boundary does with the physical transaction: starts a NEW one, PARTICIPATES in
+     * the outer one, sets a SAVEPOINT in it, or runs with NONE.
+     */
+    private String modeOf(Propagation propagation, boolean outerActive) {
+        return switch (propagation) {
+            case REQUIRED -> outerActive ? "PARTICIPATING" : "NEW";
+            case SUPPORTS, MANDATORY -> outerActive ? "PARTICIPATING" : "NONE";
+            case REQUIRES_NEW -> "NEW";
+            case NESTED -> outerActive ? "SAVEPOINT" : "NEW";
+            case NOT_SUPPORTED, NEVER -> "NONE";
+        };
+    }
+
+    private Propagation propagationOf(int behavior) {
+        for (Propagation propagation : Propagation.values()) {
+            if (propagation.value() == behavior) {
+                return propagation;
+            }
+        }
+        return Propagation.REQUIRED;
+    }
+
+    private Isolation isolationOf(int level) {
+        for (Isolation isolation : Isolation.values()) {
+            if (isolation.value() == level) {
+                return isolation;
+            }
+        }
+        return Isolation.DEFAULT;
+    }
+}
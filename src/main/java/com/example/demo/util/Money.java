@@ -0,0 +1,32 @@
+package com.example.demo.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between {@link BigDecimal} amounts and long minor units (cents). Totals are computed and
+ * stored in minor units, which keeps the arithmetic exact and allocation free; {@link BigDecimal} is
+ * only used at the API edge.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * @param amount the amount, null is treated as zero
+     * @return the amount in minor units, rounded half up
+     */
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
@@ -0,0 +1,23 @@
+-- The schema as ddl-auto created it before migrations were introduced. Existing databases are
+-- baselined at this version and skip it.
+
+CREATE TABLE product (
+    id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name     varchar(255),
+    quantity integer NOT NULL,
+    price    numeric(38, 2)
+);
+
+CREATE TABLE order_table (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status         varchar(255),
+    customer_name  varchar(255),
+    customer_email varchar(255)
+);
+
+CREATE TABLE order_item (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id   bigint REFERENCES order_table (id),
+    product_id bigint REFERENCES product (id),
+    quantity   integer NOT NULL
+);
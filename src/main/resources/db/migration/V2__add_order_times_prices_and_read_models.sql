@@ -0,0 +1,60 @@
+-- Columns and tables added after the initial schema. A database that already ran the application with
+-- ddl-auto=update may have some of them, so everything is created only if missing.
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'order_item'
+                     AND column_name = 'unit_price_minor') THEN
+        ALTER TABLE order_item
+            ADD COLUMN unit_price_minor bigint NOT NULL DEFAULT 0,
+            ADD COLUMN line_total_minor bigint NOT NULL DEFAULT 0;
+        -- The price paid was never recorded, the current product price is the best estimate
+        UPDATE order_item oi
+        SET unit_price_minor = round(p.price * 100),
+            line_total_minor = round(p.price * 100) * oi.quantity
+        FROM product p
+        WHERE p.id = oi.product_id AND p.price IS NOT NULL;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'order_table'
+                     AND column_name = 'total_minor') THEN
+        ALTER TABLE order_table ADD COLUMN total_minor bigint NOT NULL DEFAULT 0;
+        UPDATE order_table o
+        SET total_minor = t.total_minor
+        FROM (SELECT order_id, SUM(line_total_minor) AS total_minor FROM order_item GROUP BY order_id) t
+        WHERE t.order_id = o.id;
+    END IF;
+END $$;
+
+-- Orders from before creation times were recorded all get the migration time
+ALTER TABLE order_table ADD COLUMN IF NOT EXISTS created_at timestamp(6) with time zone NOT NULL DEFAULT now();
+ALTER TABLE order_item ADD COLUMN IF NOT EXISTS order_created_at timestamp(6) with time zone NOT NULL DEFAULT now();
+UPDATE order_item oi
+SET order_created_at = o.created_at
+FROM order_table o
+WHERE o.id = oi.order_id AND oi.order_created_at <> o.created_at;
+
+CREATE TABLE IF NOT EXISTS order_snapshot (
+    order_id bigint PRIMARY KEY,
+    status   varchar(255),
+    contents jsonb
+);
+
+CREATE TABLE IF NOT EXISTS product_daily_sales (
+    product_id      bigint NOT NULL,
+    sales_date      date NOT NULL,
+    units_sold      bigint NOT NULL,
+    units_cancelled bigint NOT NULL,
+    revenue_minor   bigint NOT NULL,
+    PRIMARY KEY (product_id, sales_date)
+);
+
+CREATE TABLE IF NOT EXISTS order_status_daily (
+    status      varchar(255) NOT NULL,
+    stat_date   date NOT NULL,
+    shard       integer NOT NULL,
+    order_count bigint NOT NULL,
+    PRIMARY KEY (status, stat_date, shard)
+);
@@ -0,0 +1,72 @@
+-- Converts order_table and order_item into tables range partitioned by month on the order creation
+-- time. Partitions are created for every month that has orders and three months ahead;
+-- OrderPartitionJob keeps adding months. Partition bounds are in UTC, the same as in
+-- OrderPartitionService. Tables that are already partitioned, e.g. converted by hand, are left alone.
+
+DO $$
+DECLARE
+    month date;
+    last_month date;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = 'order_table'::regclass) = 'p' THEN
+        RAISE NOTICE 'order_table is already partitioned, skipping';
+        RETURN;
+    END IF;
+
+    ALTER TABLE order_item RENAME TO order_item_unpartitioned;
+    ALTER TABLE order_table RENAME TO order_table_unpartitioned;
+
+    CREATE TABLE order_table (
+        id             bigint GENERATED BY DEFAULT AS IDENTITY,
+        created_at     timestamp(6) with time zone NOT NULL DEFAULT now(),
+        status         varchar(255),
+        customer_name  varchar(255),
+        customer_email varchar(255),
+        total_minor    bigint NOT NULL DEFAULT 0,
+        PRIMARY KEY (id, created_at)
+    ) PARTITION BY RANGE (created_at);
+
+    CREATE TABLE order_item (
+        id               bigint GENERATED BY DEFAULT AS IDENTITY,
+        order_id         bigint,
+        order_created_at timestamp(6) with time zone NOT NULL DEFAULT now(),
+        product_id       bigint REFERENCES product (id),
+        quantity         integer NOT NULL,
+        unit_price_minor bigint NOT NULL DEFAULT 0,
+        line_total_minor bigint NOT NULL DEFAULT 0,
+        PRIMARY KEY (id, order_created_at),
+        FOREIGN KEY (order_id, order_created_at) REFERENCES order_table (id, created_at)
+    ) PARTITION BY RANGE (order_created_at);
+
+    -- Catches rows outside the monthly partitions, it should stay empty
+    CREATE TABLE order_table_default PARTITION OF order_table DEFAULT;
+    CREATE TABLE order_item_default PARTITION OF order_item DEFAULT;
+
+    month := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM order_table_unpartitioned), now()) AT TIME ZONE 'UTC');
+    last_month := date_trunc('month', now() AT TIME ZONE 'UTC') + interval '3 months';
+    WHILE month <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF order_table FOR VALUES FROM (%L) TO (%L)',
+                       'order_table_p' || to_char(month, 'YYYY_MM'),
+                       month || ' 00:00:00+00', (month + interval '1 month')::date || ' 00:00:00+00');
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF order_item FOR VALUES FROM (%L) TO (%L)',
+                       'order_item_p' || to_char(month, 'YYYY_MM'),
+                       month || ' 00:00:00+00', (month + interval '1 month')::date || ' 00:00:00+00');
+        month := month + interval '1 month';
+    END LOOP;
+
+    INSERT INTO order_table (id, created_at, status, customer_name, customer_email, total_minor)
+    SELECT id, created_at, status, customer_name, customer_email, total_minor
+    FROM order_table_unpartitioned;
+
+    INSERT INTO order_item (id, order_id, order_created_at, product_id, quantity, unit_price_minor, line_total_minor)
+    SELECT i.id, i.order_id, COALESCE(o.created_at, i.order_created_at), i.product_id, i.quantity,
+           i.unit_price_minor, i.line_total_minor
+    FROM order_item_unpartitioned i
+    LEFT JOIN order_table_unpartitioned o ON o.id = i.order_id;
+
+    PERFORM setval(pg_get_serial_sequence('order_table', 'id'), COALESCE((SELECT MAX(id) FROM order_table), 0) + 1, false);
+    PERFORM setval(pg_get_serial_sequence('order_item', 'id'), COALESCE((SELECT MAX(id) FROM order_item), 0) + 1, false);
+
+    DROP TABLE order_item_unpartitioned;
+    DROP TABLE order_table_unpartitioned;
+END $$;
@@ -0,0 +1,11 @@
+-- PostgreSQL does not index the referencing side of a foreign key. Without these, loading the items of
+-- an order and checking references on product deletes scan order_item. Indexes created on the
+-- partitioned tables are created on every partition, including future ones.
+CREATE INDEX IF NOT EXISTS idx_order_item_order ON order_item (order_id, order_created_at);
+CREATE INDEX IF NOT EXISTS idx_order_item_product ON order_item (product_id);
+
+-- Serves the pending order cancellation and the open order check before archiving a month
+CREATE INDEX IF NOT EXISTS idx_order_table_status_created_at ON order_table (status, created_at);
+
+-- Last line of defence against oversell, whichever path updates the stock
+ALTER TABLE product ADD CONSTRAINT product_quantity_non_negative CHECK (quantity >= 0);
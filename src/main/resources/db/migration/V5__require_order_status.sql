@@ -0,0 +1,5 @@
+-- Orders without a status are CREATED. Making the column NOT NULL lets the single order and the bulk
+-- status updates apply the same rule, instead of the bulk UPDATE never matching NULL.
+UPDATE order_table SET status = 'CREATED' WHERE status IS NULL;
+ALTER TABLE order_table ALTER COLUMN status SET DEFAULT 'CREATED';
+ALTER TABLE order_table ALTER COLUMN status SET NOT NULL;
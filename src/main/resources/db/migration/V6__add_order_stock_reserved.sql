@@ -0,0 +1,3 @@
+-- Marks orders whose placement reserved stock, so only those return it when cancelled. Existing orders
+-- are not marked: orders placed so far were COMPLETED at once and can no longer be cancelled.
+ALTER TABLE order_table ADD COLUMN stock_reserved boolean NOT NULL DEFAULT false;
@@ -0,0 +1,18 @@
+-- Backfills the product sales rollups from the orders created before they were maintained. Days from
+-- the first rollup row on were recorded as orders were placed and are left alone. Orders count as sold
+-- if they were placed, i.e. reserved stock or reached PROCESSING or COMPLETED. History does not say
+-- when an order was cancelled, so its units are counted as cancelled on the day it was created, and its
+-- revenue is left out. Status counts are not backfilled, past status changes were never recorded.
+INSERT INTO product_daily_sales (product_id, sales_date, units_sold, units_cancelled, revenue_minor)
+SELECT oi.product_id,
+       o.created_at::date,
+       SUM(oi.quantity),
+       COALESCE(SUM(oi.quantity) FILTER (WHERE o.status = 'CANCELLED'), 0),
+       COALESCE(SUM(oi.line_total_minor) FILTER (WHERE o.status <> 'CANCELLED'), 0)
+FROM order_item oi
+JOIN order_table o ON o.id = oi.order_id AND o.created_at = oi.order_created_at
+WHERE oi.product_id IS NOT NULL
+  AND (o.stock_reserved OR o.status IN ('PROCESSING', 'COMPLETED'))
+  AND o.created_at < COALESCE((SELECT MIN(sales_date) FROM product_daily_sales), 'infinity'::date)
+GROUP BY oi.product_id, o.created_at::date
+ON CONFLICT (product_id, sales_date) DO NOTHING;
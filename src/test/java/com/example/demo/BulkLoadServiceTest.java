@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import com.example.demo.entity.Order;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.BulkLoadService;
+import com.example.demo.service.BulkLoadService.Table;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.junit.Assert.*;
+
+/**
+ * Bulk loads CSV and NDJSON files into an embedded PostgreSQL. The copy buffer is made smaller than some
+ * of the rows, so rows spanning buffers are covered too.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "demo.bulk-load.buffer-size=256")
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+public class BulkLoadServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private BulkLoadService bulkLoadService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLoadCsv() throws Exception {
+        Path products = write("products.csv", "id,name,quantity,price\r\n"
+                + "1000001,Plain,5,10.00\r\n"
+                + "1000002,\"Two\nlines, and a comma\",6,11.00\r\n"
+                + "1000003,\"Say \"\"hello\"\"\",7,\r\n"
+                + "\r\n");
+
+        Map<Table, Long> copied = bulkLoadService.load(Map.of(Table.PRODUCT, products));
+
+        assertEquals(Long.valueOf(3), copied.get(Table.PRODUCT));
+        assertEquals("Two\nlines, and a comma", productRepository.findById(1000002L).get().getName());
+        Product quoted = productRepository.findById(1000003L).get();
+        assertEquals("Say \"hello\"", quoted.getName());
+        assertNull(quoted.getPrice());
+    }
+
+    @Test
+    public void testLoadNdjson() throws Exception {
+        // Twice as many bytes as characters, and longer than the buffer
+        String longName = "é".repeat(255);
+        Path products = write("products.ndjson",
+                "{\"id\":2000001,\"name\":\"" + longName + "\",\"quantity\":5,\"price\":10.00}\n"
+                + "{\"id\":2000002,\"name\":null,\"quantity\":6}\n"
+                + "\n"
+                + "{\"id\":2000003,\"name\":\"Last\",\"quantity\":7,\"price\":null}\n");
+        Path orders = write("orders.ndjson",
+                "{\"id\":2000001,\"created_at\":\"2019-05-04T10:15:30Z\",\"status\":\"COMPLETED\","
+                + "\"customer_name\":\"testLoadNdjson\",\"customer_email\":null,\"total_minor\":2000}\n"
+                + "{\"id\":2000002,\"created_at\":\"2019-07-01 00:00:00+02\",\"status\":\"CANCELLED\","
+                + "\"customer_name\":\"testLoadNdjson\",\"total_minor\":0}\n");
+        Path items = write("order_items.ndjson",
+                "{\"id\":2000001,\"order_id\":2000001,\"order_created_at\":\"2019-05-04T10:15:30Z\","
+                + "\"product_id\":2000001,\"quantity\":2,\"unit_price_minor\":1000,\"line_total_minor\":2000}\n");
+
+        Map<Table, Long> copied = bulkLoadService.load(Map.of(Table.PRODUCT, products, Table.ORDER, orders,
+                Table.ORDER_ITEM, items));
+
+        assertEquals(Long.valueOf(3), copied.get(Table.PRODUCT));
+        assertEquals(Long.valueOf(2), copied.get(Table.ORDER));
+        assertEquals(Long.valueOf(1), copied.get(Table.ORDER_ITEM));
+        assertEquals(longName, productRepository.findById(2000001L).get().getName());
+        assertNull(productRepository.findById(2000002L).get().getName());
+        assertNull(productRepository.findById(2000003L).get().getPrice());
+        assertNull(orderRepository.findById(2000001L).get().getCustomerEmail());
+
+        // The historical months got their own partitions, 2019-07-01 00:00+02 is still June in UTC
+        assertEquals(0, count("order_table_default"));
+        assertEquals(0, count("order_item_default"));
+        assertEquals(1, count("order_table_p2019_05"));
+        assertEquals(1, count("order_item_p2019_05"));
+        assertEquals(1, count("order_table_p2019_06"));
+    }
+
+    @Test
+    public void testLoadMovesIdentityPastLoadedIds() throws Exception {
+        Path products = write("products.csv", "id,name,quantity,price\n3000001,Loaded,5,10.00\n");
+        Path orders = write("orders.csv", "id,created_at,status,customer_name,customer_email,total_minor\n"
+                + "3000001,2021-03-01T12:00:00Z,COMPLETED,testLoadMovesIdentityPastLoadedIds,,0\n");
+
+        bulkLoadService.load(Map.of(Table.PRODUCT, products, Table.ORDER, orders));
+
+        Product product = new Product();
+        product.setName("Product created in testLoadMovesIdentityPastLoadedIds");
+        product.setPrice(BigDecimal.valueOf(10.0));
+        product.setQuantity(5);
+        assertTrue(productRepository.save(product).getId() > 3000001L);
+
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testLoadMovesIdentityPastLoadedIds");
+        assertTrue(orderRepository.save(order).getId() > 3000001L);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo;
+
+import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderItem;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.OrderService;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.junit.Assert.*;
+
+/**
+ * Runs hundreds of concurrent stock reservations against a few shared products on an embedded PostgreSQL
+ * and checks that every product ends up with exactly its initial stock minus what the successful calls
+ * reserved: no oversell and no lost updates. Throughput and latency percentiles are logged per run.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+public class OrderConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderConcurrencyTest.class);
+
+    private static final int PRODUCTS = 5;
+
+    private static final int INITIAL_STOCK = 200;
+
+    private static final int THREADS = 16;
+
+    private static final int CALLS = 400;
+
+    /**
+     * Far fewer calls than this can run before the stock runs out, so fewer successes mean a broken path.
+     */
+    private static final int MIN_SUCCESSES = CALLS / 4;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final List<Product> products = new ArrayList<>();
+
+    private final Map<Long, AtomicLong> reserved = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Product " + i + " created in OrderConcurrencyTest");
+            product.setPrice(BigDecimal.valueOf(10.0));
+            product.setQuantity(INITIAL_STOCK);
+            products.add(productRepository.save(product));
+            reserved.put(product.getId(), new AtomicLong());
+        }
+    }
+
+    @Test
+    public void testPlaceOrderUnderContention() throws Exception {
+        run("placeOrder", () -> {
+            Order order = randomOrder();
+            orderService.placeOrder(order);
+            recordReserved(order.getItems(), 1);
+        });
+    }
+
+    @Test
+    public void testPlaceOrderWithLockingUnderContention() throws Exception {
+        run("placeOrderWithLocking", () -> {
+            Order order = randomOrder();
+            orderService.placeOrderWithLocking(order);
+            recordReserved(order.getItems(), 1);
+        });
+    }
+
+    /**
+     * Places orders and cancels already placed ones at the same time. Both paths lock the products in
+     * ascending id order before the daily rollup rows, so none of the calls may fail with a deadlock.
+     * Placements use the locking mode, the per-item mode locks products in line order.
+     */
+    @Test
+    public void testPlaceAndCancelOrdersUnderContention() throws Exception {
+        Queue<Order> placed = new ConcurrentLinkedQueue<>();
+        AtomicInteger deadlocks = new AtomicInteger();
+        run("placeOrderWithLocking+cancelOrders", () -> {
+            try {
+                Order order = ThreadLocalRandom.current().nextBoolean() ? placed.poll() : null;
+                if (order != null) {
+                    if (!orderService.cancelOrders(List.of(order.getId())).isEmpty()) {
+                        recordReserved(order.getItems(), -1);
+                    }
+                } else {
+                    order = randomOrder();
+                    orderService.placeOrderWithLocking(order);
+                    recordReserved(order.getItems(), 1);
+                    placed.add(order);
+                }
+            } catch (RuntimeException e) {
+                if (isDeadlock(e)) {
+                    deadlocks.incrementAndGet();
+                }
+                throw e;
+            }
+        });
+        assertEquals("Deadlocks between placing and cancelling orders", 0, deadlocks.get());
+    }
+
+    @Test
+    public void testPlaceOrderNestedUnderContention() throws Exception {
+        run("placeOrderNested", () -> {
+            Order order = randomOrder();
+            orderService.placeOrderNested(order);
+            // placeOrderNested calls updateProductQuantity on itself, so each line is reserved twice
+            recordReserved(order.getItems(), 2);
+        });
+    }
+
+    @Test
+    public void testUpdateProductQuantityUnderContention() throws Exception {
+        run("updateProductQuantity", () -> {
+            OrderItem item = randomItem();
+            orderService.updateProductQuantity(item);
+            recordReserved(List.of(item), 1);
+        });
+    }
+
+    /**
+     * Runs {@link #CALLS} calls on {@link #THREADS} threads until the shared stock runs out, then checks the
+     * stock of every product against the reservations of the calls that succeeded.
+     */
+    private void run(String name, Runnable call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long[] latencies = new long[CALLS];
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(CALLS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                long callStart = System.nanoTime();
+                try {
+                    call.run();
+                } catch (RuntimeException e) {
+                    // Insufficient stock and deadlock victims roll back and reserve nothing, anything else
+                    // fails the test
+                    if (!isExpectedFailure(e)) {
+                        throw e;
+                    }
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[index] = System.nanoTime() - callStart;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(name + " succeeded only " + (CALLS - failures.get()) + " times",
+                CALLS - failures.get() >= MIN_SUCCESSES);
+        for (Product product : products) {
+            int quantity = productRepository.findById(product.getId()).get().getQuantity();
+            assertTrue("Oversold " + product.getName(), quantity >= 0);
+            assertEquals("Lost update on " + product.getName(),
+                    INITIAL_STOCK - reserved.get(product.getId()).get(), quantity);
+        }
+
+        Arrays.sort(latencies);
+        logger.info("{}: {} calls ({} failed) in {} ms, {} calls/s, latency p50={} ms p95={} ms p99={} ms",
+                name, CALLS, failures.get(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                CALLS * 1_000_000_000L / elapsed,
+                percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99));
+    }
+
+    private boolean isExpectedFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("40")
+                    || "Insufficient stock".equals(cause.getMessage())
+                    // placeOrderNested replaces the insufficient stock failure of its second reservation
+                    || "Error updating product quantity".equals(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDeadlock(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && "40P01".equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Order randomOrder() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("OrderConcurrencyTest");
+        int lines = ThreadLocalRandom.current().nextInt(1, 4);
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = randomItem();
+            item.setOrder(order);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    private OrderItem randomItem() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Product product = new Product();
+        product.setId(products.get(random.nextInt(PRODUCTS)).getId());
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(random.nextInt(1, 4));
+        return item;
+    }
+
+    private void recordReserved(List<OrderItem> items, int times) {
+        for (OrderItem item : items) {
+            reserved.get(item.getProduct().getId()).addAndGet((long) item.getQuantity() * times);
+        }
+    }
+
+    private double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
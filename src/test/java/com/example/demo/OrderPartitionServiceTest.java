@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderItem;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.OrderPartitionService;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.junit.Assert.*;
+
+/**
+ * Archives old monthly order partitions on an embedded PostgreSQL migrated by Flyway.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+public class OrderPartitionServiceTest {
+
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testArchivePartitionsMovesClosedMonthsOnly() {
+        orderPartitionService.createPartitions(YearMonth.of(2020, 1), 1);
+        Product product = new Product();
+        product.setName("Product created in testArchivePartitionsMovesClosedMonthsOnly");
+        product.setPrice(BigDecimal.valueOf(10.0));
+        product.setQuantity(10);
+        productRepository.save(product);
+
+        // January only has finished orders, February still has one in progress
+        saveOrder(product, "2020-01-10T08:00:00Z", OrderStatus.COMPLETED);
+        saveOrder(product, "2020-01-31T23:59:59Z", OrderStatus.CANCELLED);
+        saveOrder(product, "2020-02-01T00:00:00Z", OrderStatus.COMPLETED);
+        saveOrder(product, "2020-02-20T12:00:00Z", OrderStatus.PROCESSING);
+        assertEquals(0, count("order_table_default"));
+
+        List<YearMonth> archived = orderPartitionService.archivePartitions(YearMonth.of(2020, 3));
+
+        assertEquals(List.of(YearMonth.of(2020, 1)), archived);
+        assertEquals(List.of("order_archive"), schemasOf("order_table_p2020_01"));
+        assertEquals(List.of("order_archive"), schemasOf("order_item_p2020_01"));
+        assertFalse(isAttached("order_table", "order_table_p2020_01"));
+        assertFalse(isAttached("order_item", "order_item_p2020_01"));
+        // The archived rows are kept, only moved out of the order tables
+        assertEquals(2, count("order_archive.order_table_p2020_01"));
+        assertEquals(2, count("order_archive.order_item_p2020_01"));
+
+        assertEquals(List.of("public"), schemasOf("order_table_p2020_02"));
+        assertTrue(isAttached("order_table", "order_table_p2020_02"));
+        assertTrue(isAttached("order_item", "order_item_p2020_02"));
+        assertEquals(2, count("order_table_p2020_02"));
+    }
+
+    private void saveOrder(Product product, String createdAt, OrderStatus status) {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testArchivePartitionsMovesClosedMonthsOnly");
+        order.setCreatedAt(Instant.parse(createdAt));
+        order.setStatus(status);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setQuantity(1);
+        order.getItems().add(item);
+        orderRepository.save(order);
+    }
+
+    private List<String> schemasOf(String table) {
+        return jdbcTemplate.queryForList("SELECT n.nspname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                + "WHERE c.relname = ?", String.class, table);
+    }
+
+    private boolean isAttached(String parent, String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                + "WHERE p.relname = ? AND c.relname = ?)", Boolean.class, parent, partition));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
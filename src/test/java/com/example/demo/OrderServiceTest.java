@@ -4,6 +4,8 @@ import com.example.demo.constant.OrderStatus;
 import com.example.demo.entity.Order;
 import com.example.demo.entity.OrderItem;
 import com.example.demo.entity.Product;
+import com.example.demo.exception.IllegalStatusTransitionException;
+import com.example.demo.metrics.SqlStatementScope;
 import com.example.demo.repository.OrderItemRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.ProductRepository;
@@ -20,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -148,6 +151,117 @@ public class OrderServiceTest {
         assertEquals(10, updatedProduct2.getQuantity());
     }
 
+    @Test
+    public void testPlaceOrderWithLocking() {
+        Product product1 = new Product();
+        product1.setName("Product 1 created in testPlaceOrderWithLocking");
+        product1.setPrice(BigDecimal.valueOf(10.0));
+        product1.setQuantity(5);
+        productRepository.save(product1);
+
+        Product product2 = new Product();
+        product2.setName("Product 2 created in testPlaceOrderWithLocking");
+        product2.setPrice(BigDecimal.valueOf(20.0));
+        product2.setQuantity(10);
+        productRepository.save(product2);
+
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testPlaceOrderWithLocking");
+        order.setStatus(OrderStatus.PENDING);
+
+        // Lines are deliberately not in product id order, and product 1 appears twice
+        for (Product product : Arrays.asList(product2, product1, product1)) {
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(2);
+            order.getItems().add(item);
+        }
+
+        orderService.placeOrderWithLocking(order);
+
+        Order savedOrder = orderRepository.findById(order.getId()).get();
+        assertEquals(OrderStatus.PROCESSING, savedOrder.getStatus());
+        // 2 x 20.00 + 2 x 10.00 + 2 x 10.00
+        assertEquals(BigDecimal.valueOf(8000, 2), savedOrder.getTotal());
+        assertEquals(1, productRepository.findById(product1.getId()).get().getQuantity());
+        assertEquals(8, productRepository.findById(product2.getId()).get().getQuantity());
+    }
+
+    @Test
+    public void testPlaceOrderWithLockingWithoutProduct() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testPlaceOrderWithLockingWithoutProduct");
+        OrderItem withoutProduct = new OrderItem();
+        withoutProduct.setQuantity(1);
+        order.getItems().add(withoutProduct);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> orderService.placeOrderWithLocking(order));
+        assertEquals("Product not found", e.getMessage());
+
+        // A product without an id is reported the same way
+        withoutProduct.setProduct(new Product());
+        e = assertThrows(RuntimeException.class, () -> orderService.placeOrderWithLocking(order));
+        assertEquals("Product not found", e.getMessage());
+    }
+
+    @Test
+    public void testPlaceOrderWithLockingStatementCount() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testPlaceOrderWithLockingStatementCount");
+
+        for (int i = 0; i < 2; i++) {
+            Product product = new Product();
+            product.setName("Product " + i + " created in testPlaceOrderWithLockingStatementCount");
+            product.setPrice(BigDecimal.valueOf(10.0));
+            product.setQuantity(5);
+            productRepository.save(product);
+
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(1);
+            order.getItems().add(item);
+        }
+
+        try (SqlStatementScope scope = SqlStatementScope.open()) {
+            orderService.placeOrderWithLocking(order);
+
+            // One locking select, the order and item inserts, one stock update per product
+            // and the two statistics upserts
+            assertEquals(8, scope.getStatements());
+        }
+    }
+
+    @Test
+    public void testPlaceOrderStatementCount() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testPlaceOrderStatementCount");
+
+        for (int i = 0; i < 2; i++) {
+            Product product = new Product();
+            product.setName("Product " + i + " created in testPlaceOrderStatementCount");
+            product.setPrice(BigDecimal.valueOf(10.0));
+            product.setQuantity(5);
+            productRepository.save(product);
+
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(1);
+            order.getItems().add(item);
+        }
+
+        try (SqlStatementScope scope = SqlStatementScope.open()) {
+            orderService.placeOrder(order);
+
+            // One guarded stock update per item, the order and item inserts and the two statistics
+            // upserts: 2N + 3, within the place-order budget of 5 + 2N
+            assertEquals(7, scope.getStatements());
+        }
+    }
+
     @Test
     @Transactional
     public void testUpdateProductQuantityWithRequiresNewPropagationAndInnerException() {
@@ -267,6 +381,130 @@ public class OrderServiceTest {
         assertEquals(OrderStatus.COMPLETED, retrievedOrder.getStatus());
     }
 
+    @Test
+    @Transactional
+    public void testUpdateOrderStatusWithIllegalTransition() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testUpdateOrderStatusWithIllegalTransition");
+        order.setStatus(OrderStatus.COMPLETED);
+        orderRepository.save(order);
+
+        assertThrows(IllegalStatusTransitionException.class, () -> {
+            orderService.updateOrderStatus(order.getId(), OrderStatus.PENDING);
+        });
+    }
+
+    @Test
+    @Transactional
+    public void testTransitionOrderStatusInBulk() {
+        List<Order> orders = new ArrayList<>();
+        for (OrderStatus status : Arrays.asList(OrderStatus.PENDING, OrderStatus.PENDING, OrderStatus.COMPLETED)) {
+            Order order = new Order();
+            order.setCustomerEmail("sgwebfreelancer@gmail.com");
+            order.setCustomerName("testTransitionOrderStatusInBulk");
+            order.setStatus(status);
+            orders.add(orderRepository.save(order));
+        }
+
+        List<Long> transitioned = orderService.transitionOrderStatus(
+                Arrays.asList(orders.get(0).getId(), orders.get(1).getId(), orders.get(2).getId()),
+                OrderStatus.PENDING, OrderStatus.PROCESSING);
+
+        // Only the PENDING orders moved, the COMPLETED one was skipped
+        assertEquals(2, transitioned.size());
+        assertTrue(transitioned.contains(orders.get(0).getId()));
+        assertTrue(transitioned.contains(orders.get(1).getId()));
+    }
+
+    @Test
+    @Transactional
+    public void testTransitionOrderStatusInBulkWithoutStatus() {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testTransitionOrderStatusInBulkWithoutStatus");
+        order.setStatus(null);
+        orderRepository.save(order);
+
+        // An order saved without a status is CREATED for the bulk update too
+        List<Long> transitioned = orderService.transitionOrderStatus(List.of(order.getId()),
+                OrderStatus.CREATED, OrderStatus.PENDING);
+
+        assertEquals(List.of(order.getId()), transitioned);
+    }
+
+    @Test
+    public void testCancelOrdersRestoresStock() {
+        Product product = new Product();
+        product.setName("Product created in testCancelOrdersRestoresStock");
+        product.setPrice(BigDecimal.valueOf(10.0));
+        product.setQuantity(10);
+        productRepository.save(product);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Order order = new Order();
+            order.setCustomerEmail("sgwebfreelancer@gmail.com");
+            order.setCustomerName("testCancelOrdersRestoresStock");
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(3);
+            order.getItems().add(item);
+            orderService.placeOrder(order);
+            orderIds.add(order.getId());
+        }
+        assertEquals(4, productRepository.findById(product.getId()).get().getQuantity());
+
+        // A PENDING order that was never placed reserved nothing and must not add stock
+        Order unplaced = new Order();
+        unplaced.setCustomerEmail("sgwebfreelancer@gmail.com");
+        unplaced.setCustomerName("testCancelOrdersRestoresStock");
+        unplaced.setStatus(OrderStatus.PENDING);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(3);
+        unplaced.getItems().add(item);
+        orderIds.add(orderRepository.save(unplaced).getId());
+
+        List<Long> cancelled = orderService.cancelOrders(orderIds);
+
+        // All three orders were cancelled, and only the placed ones returned their quantities
+        assertEquals(3, cancelled.size());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(orderIds.get(0)).get().getStatus());
+        assertEquals(10, productRepository.findById(product.getId()).get().getQuantity());
+    }
+
+    @Test
+    public void testTransitionOrderStatusToCancelledRestoresStock() {
+        Product product = new Product();
+        product.setName("Product created in testTransitionOrderStatusToCancelledRestoresStock");
+        product.setPrice(BigDecimal.valueOf(10.0));
+        product.setQuantity(10);
+        productRepository.save(product);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Order order = new Order();
+            order.setCustomerEmail("sgwebfreelancer@gmail.com");
+            order.setCustomerName("testTransitionOrderStatusToCancelledRestoresStock");
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            item.setQuantity(3);
+            order.getItems().add(item);
+            orderService.placeOrder(order);
+            orderIds.add(order.getId());
+        }
+        assertEquals(4, productRepository.findById(product.getId()).get().getQuantity());
+
+        // The plain status update cancels like the cancel endpoints do
+        List<Long> cancelled = orderService.transitionOrderStatus(orderIds, OrderStatus.PROCESSING,
+                OrderStatus.CANCELLED);
+
+        assertEquals(2, cancelled.size());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(orderIds.get(1)).get().getStatus());
+        assertEquals(10, productRepository.findById(product.getId()).get().getQuantity());
+    }
+
     @Test
     @Transactional
     public void testNeverPropagationWithTransaction() {
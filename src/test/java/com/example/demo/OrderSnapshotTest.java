@@ -0,0 +1,86 @@
+package com.example.demo;
+
+import com.example.demo.entity.OrderSnapshot;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.OrderSnapshotRepository;
+import com.example.demo.repository.ProductRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Places an order through {@code POST /orders} with the snapshot read model enabled and reads it back
+ * through {@code GET /orders/{id}}. The statement budget fails the request when exceeded, so writing the
+ * snapshot must fit into the place-order budget.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"demo.order-snapshot.enabled=true", "demo.sql.fail-on-budget-exceeded=true"})
+@AutoConfigureMockMvc
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+public class OrderSnapshotTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSnapshotRepository orderSnapshotRepository;
+
+    @Test
+    public void testPlaceOrderWritesSnapshot() throws Exception {
+        Product product = new Product();
+        product.setName("Product created in testPlaceOrderWritesSnapshot");
+        product.setPrice(BigDecimal.valueOf(12.5));
+        product.setQuantity(10);
+        productRepository.save(product);
+
+        mockMvc.perform(post("/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"customerName\":\"testPlaceOrderWritesSnapshot\","
+                                + "\"customerEmail\":\"sgwebfreelancer@gmail.com\","
+                                + "\"items\":[{\"product\":{\"id\":" + product.getId() + "},\"quantity\":2}]}"))
+                .andExpect(status().isOk());
+
+        Long orderId = orderRepository.findAll().stream()
+                .filter(order -> "testPlaceOrderWritesSnapshot".equals(order.getCustomerName()))
+                .findFirst().get().getId();
+        OrderSnapshot snapshot = orderSnapshotRepository.findById(orderId).get();
+        assertEquals(1, snapshot.getContents().getLines().size());
+
+        // Renaming the product does not change the order, so the response below comes from the snapshot
+        product.setName("Renamed in testPlaceOrderWritesSnapshot");
+        productRepository.save(product);
+
+        mockMvc.perform(get("/orders/{id}", orderId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(orderId))
+                .andExpect(jsonPath("$.status").value("PROCESSING"))
+                .andExpect(jsonPath("$.customerName").value("testPlaceOrderWritesSnapshot"))
+                .andExpect(jsonPath("$.total").value(25.0))
+                .andExpect(jsonPath("$.lines[0].productId").value(product.getId()))
+                .andExpect(jsonPath("$.lines[0].productName").value("Product created in testPlaceOrderWritesSnapshot"))
+                .andExpect(jsonPath("$.lines[0].unitPrice").value(12.5))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2));
+    }
+}
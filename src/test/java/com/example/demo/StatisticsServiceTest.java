@@ -0,0 +1,131 @@
+package com.example.demo;
+
+import com.example.demo.constant.OrderStatus;
+import com.example.demo.dto.ProductDailySalesCount;
+import com.example.demo.dto.SalesStatistics;
+import com.example.demo.dto.StatusDailyCount;
+import com.example.demo.entity.Order;
+import com.example.demo.entity.OrderItem;
+import com.example.demo.entity.Product;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.StatisticsService;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static org.junit.Assert.*;
+
+/**
+ * Places and cancels orders on an embedded PostgreSQL and checks the daily rollups read by {@code GET /stats}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureEmbeddedDatabase(provider = ZONKY)
+public class StatisticsServiceTest {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    public void testPlaceAndCancelOrdersUpdateRollups() {
+        Product product1 = saveProduct("Product 1 created in testPlaceAndCancelOrdersUpdateRollups", "10.00");
+        Product product2 = saveProduct("Product 2 created in testPlaceAndCancelOrdersUpdateRollups", "2.50");
+        // The status counts are shared with other tests, so only the changes are checked
+        long processingBefore = statusCount(OrderStatus.PROCESSING);
+        long cancelledBefore = statusCount(OrderStatus.CANCELLED);
+
+        Order order1 = newOrder(product1, 2, product2, 4);
+        orderService.placeOrder(order1);
+        Order order2 = newOrder(product1, 1, null, 0);
+        orderService.placeOrderWithLocking(order2);
+        Order order3 = newOrder(product2, 1, null, 0);
+        orderService.placeOrder(order3);
+        // Never placed, so it counts as cancelled but returns no units
+        Order unplaced = newOrder(product1, 5, null, 0);
+        unplaced.setStatus(OrderStatus.PENDING);
+        orderRepository.save(unplaced);
+
+        orderService.cancelOrders(List.of(order1.getId(), order3.getId(), unplaced.getId()));
+
+        ProductDailySalesCount sales1 = sales(product1);
+        assertEquals(3, sales1.unitsSold());
+        assertEquals(2, sales1.unitsCancelled());
+        // 3 x 10.00 sold, 2 x 10.00 cancelled
+        assertEquals(0, new BigDecimal("10.00").compareTo(sales1.revenue()));
+
+        ProductDailySalesCount sales2 = sales(product2);
+        assertEquals(5, sales2.unitsSold());
+        assertEquals(5, sales2.unitsCancelled());
+        assertEquals(0, BigDecimal.ZERO.compareTo(sales2.revenue()));
+
+        assertEquals(3, statusCount(OrderStatus.PROCESSING) - processingBefore);
+        assertEquals(3, statusCount(OrderStatus.CANCELLED) - cancelledBefore);
+    }
+
+    private Product saveProduct(String name, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(10);
+        return productRepository.save(product);
+    }
+
+    private Order newOrder(Product product1, int quantity1, Product product2, int quantity2) {
+        Order order = new Order();
+        order.setCustomerEmail("sgwebfreelancer@gmail.com");
+        order.setCustomerName("testPlaceAndCancelOrdersUpdateRollups");
+        addItem(order, product1, quantity1);
+        if (product2 != null) {
+            addItem(order, product2, quantity2);
+        }
+        return order;
+    }
+
+    private void addItem(Order order, Product product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        order.getItems().add(item);
+    }
+
+    private SalesStatistics statistics() {
+        // The rollups use the database's date, allow for it being a day off the JVM's
+        LocalDate today = LocalDate.now();
+        return statisticsService.getStatistics(today.minusDays(1), today.plusDays(1));
+    }
+
+    private ProductDailySalesCount sales(Product product) {
+        List<ProductDailySalesCount> sales = statistics().productSales().stream()
+                .filter(count -> count.productId().equals(product.getId()))
+                .toList();
+        assertEquals(1, sales.size());
+        return sales.get(0);
+    }
+
+    private long statusCount(OrderStatus status) {
+        return statistics().statusCounts().stream()
+                .filter(count -> count.status() == status)
+                .mapToLong(StatusDailyCount::orderCount)
+                .sum();
+    }
+}